@@ -9,18 +9,23 @@ public class Aerodrom implements Serializable {
     private String naziv;
     private String grad;
 
+    // ID iz RegistarAerodroma; -1 dok aerodrom nije registrovan
+    private transient int id = -1;
+
     public Aerodrom(String sifra, String naziv, String grad) {
         this.sifra = sifra;
         this.naziv = naziv;
         this.grad = grad;
     }
 
-    // Getteri i setteri
+    // Getteri i setteri. Registrovan aerodrom dele svi letovi svih avio kompanija,
+    // pa se on ne menja; setteri važe samo za aerodrom koji još nije registrovan.
     public String getSifra() {
         return sifra;
     }
 
     public void setSifra(String sifra) {
+        proveriDaNijeRegistrovan();
         this.sifra = sifra;
     }
 
@@ -29,6 +34,7 @@ public class Aerodrom implements Serializable {
     }
 
     public void setNaziv(String naziv) {
+        proveriDaNijeRegistrovan();
         this.naziv = naziv;
     }
 
@@ -37,9 +43,24 @@ public class Aerodrom implements Serializable {
     }
 
     public void setGrad(String grad) {
+        proveriDaNijeRegistrovan();
         this.grad = grad;
     }
 
+    public int getId() {
+        return id;
+    }
+
+    void setId(int id) {
+        this.id = id;
+    }
+
+    private void proveriDaNijeRegistrovan() {
+        if (id >= 0) {
+            throw new IllegalStateException("Aerodrom " + sifra + " je registrovan i ne može se menjati");
+        }
+    }
+
     @Override
     public String toString() {
         return sifra + " - " + naziv + " (" + grad + ")";
@@ -60,4 +81,10 @@ public class Aerodrom implements Serializable {
     public int hashCode() {
         return sifra.hashCode();
     }
+
+    // Metoda za serijalizaciju; ID važi samo u registru procesa koji ga je dodelio
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        id = -1;
+    }
 }
\ No newline at end of file
@@ -1,15 +1,23 @@
 package model;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class Agent implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -17,12 +25,19 @@ public class Agent implements Serializable {
     private String naziv;
     private Map<String, AvioKompanija> avioKompanije; // Ključ je naziv avio kompanije
     private Map<String, Rezervacija> rezervacije; // Ključ je ID rezervacije
-    private Map<LocalDate, Double> dnevniPrihodi;
+    private Map<LocalDate, VerzionisaniZbir> dnevniPrihodi;
     private double procenatProvizije; // Procenat koji agent uzima (npr. 0.1 za 10%)
 
     // Executor service za konkurentne RPC zahteve (ograničeno na 3)
     private transient ExecutorService executorService;
 
+    // Rezultati zahteva sa ključem idempotentnosti, za klijente koji ponavljaju zahtev posle isteka vremena
+    private transient KesIdempotentnosti<Rezervacija> kesRezervacija;
+    private transient KesIdempotentnosti<Double> kesPlacanja;
+
+    // Arhiva u koju se premeštaju završene rezervacije (null ako se ne arhivira)
+    private transient ArhivaRezervacija arhiva;
+
     public Agent(String naziv, double procenatProvizije) {
         this.naziv = naziv;
         this.avioKompanije = new ConcurrentHashMap<>();
@@ -30,9 +45,12 @@ public class Agent implements Serializable {
         this.dnevniPrihodi = new ConcurrentHashMap<>();
         this.procenatProvizije = procenatProvizije;
         this.executorService = Executors.newFixedThreadPool(3);
+        this.kesRezervacija = new KesIdempotentnosti<>();
+        this.kesPlacanja = new KesIdempotentnosti<>();
     }
 
-    // Metoda za dodavanje avio kompanije
+    // Metoda za dodavanje avio kompanije. Agent poziva avio kompaniju direktno, u istom
+    // procesu; avio kompanija iz drugog procesa (preko RpcKlijent-a) se ne može dodati.
     public void dodajAvioKompaniju(AvioKompanija avioKompanija) {
         avioKompanije.put(avioKompanija.getNaziv(), avioKompanija);
     }
@@ -40,69 +58,156 @@ public class Agent implements Serializable {
     // Metoda za pronalaženje letova po kriterijumima od svih avio kompanija
     public List<Let> nadjiLetove(Aerodrom polazniAerodrom, Aerodrom dolazniAerodrom,
                                  LocalDate datum) {
-        List<Let> rezultat = new ArrayList<>();
+        // Sortiraj po trenutnoj ceni (najjeftiniji prvo)
+        return streamLetova(KriterijumLeta.za(polazniAerodrom, dolazniAerodrom, datum))
+                .sorted((let1, let2) -> Double.compare(let1.getTrenutnaCena(), let2.getTrenutnaCena()))
+                .collect(Collectors.toList());
+    }
 
+    // Metoda za lenji prolazak kroz letove svih avio kompanija, bez kopiranja mapa.
+    // Stream se može paralelizovati i po kompanijama i unutar jedne kompanije.
+    public Stream<Let> streamLetova() {
+        List<Spliterator<Let>> delovi = new ArrayList<>();
         for (AvioKompanija avioKompanija : avioKompanije.values()) {
-            rezultat.addAll(avioKompanija.nadjiLetove(polazniAerodrom, dolazniAerodrom, datum));
+            delovi.add(avioKompanija.spliteratorLetova());
         }
+        return StreamSupport.stream(new SpojeniSpliterator<>(delovi), false);
+    }
 
-        // Sortiraj po trenutnoj ceni (najjeftiniji prvo)
-        rezultat.sort((let1, let2) -> Double.compare(let1.getTrenutnaCena(), let2.getTrenutnaCena()));
+    // Metoda za lenji prolazak kroz letove koji zadovoljavaju kriterijum
+    public Stream<Let> streamLetova(KriterijumLeta kriterijum) {
+        return streamLetova().filter(kriterijum);
+    }
 
-        return rezultat;
+    // Metoda za lenji prolazak kroz rezervacije agenta
+    public Stream<Rezervacija> streamRezervacija() {
+        return rezervacije.values().stream();
+    }
+
+    // Metoda za rezervacije agenta koje su postojale u snimku
+    public Stream<Rezervacija> streamRezervacija(Snimak snimak) {
+        return streamRezervacija().filter(rezervacija -> rezervacija.postojiU(snimak));
+    }
+
+    // Metoda za lenji prolazak kroz rezervacije agenta sa datim statusom
+    public Stream<Rezervacija> streamRezervacija(Rezervacija.Status status) {
+        return streamRezervacija().filter(rezervacija -> rezervacija.getStatus() == status);
     }
 
     // Metoda za rezervaciju leta
     public Rezervacija rezervisiLet(String sifraLeta, String sifraPovratnogLeta, int brojOsoba) {
         // Pronađi kom avio kompaniji pripada let
-        Let odlazniLet = null;
-        AvioKompanija odlaznaKompanija = null;
+        AvioKompanija odlaznaKompanija = nadjiKompanijuLeta(sifraLeta);
+        if (odlaznaKompanija == null) {
+            return null;
+        }
 
-        for (AvioKompanija avioKompanija : avioKompanije.values()) {
-            for (Let let : avioKompanija.getLetovi().values()) {
-                if (let.getSifra().equals(sifraLeta)) {
-                    odlazniLet = let;
-                    odlaznaKompanija = avioKompanija;
-                    break;
-                }
+        // Avio kompanija rezerviše samo svoje letove, pa i povratni tražimo kod nje
+        Let odlazniLet = odlaznaKompanija.getLet(sifraLeta);
+        Let povratniLet = (sifraPovratnogLeta != null) ? odlaznaKompanija.getLet(sifraPovratnogLeta) : null;
+        if (sifraPovratnogLeta != null && povratniLet == null) {
+            return null;
+        }
+
+        // Rezerviši let preko avio kompanije; i rezervacija kod agenta nosi istu verziju
+        return Verzije.uPisanju(verzija -> {
+            Rezervacija rezervacija = odlaznaKompanija.rezervisiLet(odlazniLet, povratniLet,
+                    brojOsoba, true, verzija);
+
+            if (rezervacija != null) {
+                rezervacije.put(rezervacija.getId(), rezervacija);
             }
-            if (odlazniLet != null) break;
+
+            return rezervacija;
+        }, odlazniLet, povratniLet);
+    }
+
+    // Metoda za rezervaciju leta sa ključem idempotentnosti; ponovljen zahtev vraća istu rezervaciju
+    public Rezervacija rezervisiLet(String kljucIdempotentnosti, String sifraLeta, String sifraPovratnogLeta,
+                                    int brojOsoba) {
+        return kesRezervacija.izvrsi(kljucIdempotentnosti,
+                Arrays.asList("let", sifraLeta, sifraPovratnogLeta, brojOsoba),
+                () -> rezervisiLet(sifraLeta, sifraPovratnogLeta, brojOsoba));
+    }
+
+    // Metoda za pravljenje ponude za brojOsoba mesta na letu bilo koje avio kompanije
+    public Ponuda napraviPonudu(String sifraLeta, int brojOsoba) {
+        AvioKompanija avioKompanija = nadjiKompanijuLeta(sifraLeta);
+        return (avioKompanija != null) ? avioKompanija.napraviPonudu(sifraLeta, brojOsoba) : null;
+    }
+
+    // Metoda za rezervaciju leta po ponudama; cena iz ponuda ostaje zaključana
+    public Rezervacija rezervisiLet(Ponuda odlaznaPonuda, Ponuda povratnaPonuda) {
+        AvioKompanija odlaznaKompanija = nadjiKompanijuLeta(odlaznaPonuda.getSifraLeta());
+        if (odlaznaKompanija == null) {
+            return null;
         }
 
-        if (odlazniLet == null || odlaznaKompanija == null) {
+        Let odlazniLet = odlaznaKompanija.getLet(odlaznaPonuda.getSifraLeta());
+        Let povratniLet = (povratnaPonuda != null) ? odlaznaKompanija.getLet(povratnaPonuda.getSifraLeta()) : null;
+        if (povratnaPonuda != null && povratniLet == null) {
             return null;
         }
 
-        Let povratniLet = null;
-        AvioKompanija povratnaKompanija = null;
-
-        if (sifraPovratnogLeta != null) {
-            for (AvioKompanija avioKompanija : avioKompanije.values()) {
-                for (Let let : avioKompanija.getLetovi().values()) {
-                    if (let.getSifra().equals(sifraPovratnogLeta)) {
-                        povratniLet = let;
-                        povratnaKompanija = avioKompanija;
-                        break;
-                    }
-                }
-                if (povratniLet != null) break;
-            }
+        return Verzije.uPisanju(verzija -> {
+            Rezervacija rezervacija = odlaznaKompanija.rezervisiLet(odlazniLet, povratniLet,
+                    odlaznaPonuda, povratnaPonuda, true, verzija);
 
-            if (povratniLet == null && sifraPovratnogLeta != null) {
-                return null;
+            if (rezervacija != null) {
+                rezervacije.put(rezervacija.getId(), rezervacija);
             }
-        }
 
-        // Rezerviši let preko avio kompanije
-        Rezervacija rezervacija = odlaznaKompanija.rezervisiLet(sifraLeta,
-                povratniLet != null ? sifraPovratnogLeta : null,
-                brojOsoba, true);
+            return rezervacija;
+        }, odlazniLet, povratniLet);
+    }
 
-        if (rezervacija != null) {
-            rezervacije.put(rezervacija.getId(), rezervacija);
+    // Metoda za stavljanje na listu čekanja za pun let; dobijena rezervacija se vodi i kod agenta
+    public CompletableFuture<Rezervacija> staviNaListuCekanja(String sifraLeta, int brojOsoba, int prioritet) {
+        AvioKompanija avioKompanija = nadjiKompanijuLeta(sifraLeta);
+        if (avioKompanija == null) {
+            return CompletableFuture.completedFuture(null);
         }
 
-        return rezervacija;
+        CompletableFuture<Rezervacija> cekanje = avioKompanija.staviNaListuCekanja(sifraLeta, brojOsoba, prioritet);
+        CompletableFuture<Rezervacija> rezultat = new CompletableFuture<>();
+        cekanje.whenComplete((rezervacija, greska) -> {
+            if (greska != null) {
+                rezultat.completeExceptionally(greska);
+                return;
+            }
+            if (rezervacija != null) {
+                rezervacije.put(rezervacija.getId(), rezervacija);
+            }
+            // Klijent je odustao dok je avio kompanija već dodeljivala mesta, pa ih vraćamo
+            if (!rezultat.complete(rezervacija) && rezervacija != null) {
+                otkaziRezervaciju(rezervacija.getId());
+            }
+        });
+
+        // Ako klijent odustane, skidamo ga i sa liste čekanja avio kompanije
+        rezultat.whenComplete((rezervacija, greska) -> {
+            if (rezultat.isCancelled()) {
+                cekanje.cancel(false);
+            }
+        });
+
+        return rezultat;
+    }
+
+    // Metoda za rezervaciju po ponudama sa ključem idempotentnosti
+    public Rezervacija rezervisiLet(String kljucIdempotentnosti, Ponuda odlaznaPonuda, Ponuda povratnaPonuda) {
+        return kesRezervacija.izvrsi(kljucIdempotentnosti, Arrays.asList("ponuda", odlaznaPonuda, povratnaPonuda),
+                () -> rezervisiLet(odlaznaPonuda, povratnaPonuda));
+    }
+
+    // Metoda za pronalaženje avio kompanije kojoj pripada let sa datom šifrom
+    private AvioKompanija nadjiKompanijuLeta(String sifraLeta) {
+        for (AvioKompanija avioKompanija : avioKompanije.values()) {
+            if (avioKompanija.getLet(sifraLeta) != null) {
+                return avioKompanija;
+            }
+        }
+        return null;
     }
 
     // Metoda za konkurentnu rezervaciju leta
@@ -112,47 +217,92 @@ public class Agent implements Serializable {
         return executorService.submit(() -> rezervisiLet(sifraLeta, sifraPovratnogLeta, brojOsoba));
     }
 
+    // Metoda za konkurentnu rezervaciju leta sa ključem idempotentnosti
+    public Future<Rezervacija> rezervisiLetAsinhronno(final String kljucIdempotentnosti,
+                                                      final String sifraLeta,
+                                                      final String sifraPovratnogLeta,
+                                                      final int brojOsoba) {
+        return executorService.submit(() ->
+                rezervisiLet(kljucIdempotentnosti, sifraLeta, sifraPovratnogLeta, brojOsoba));
+    }
+
+    // Metoda za plaćanje rezervacije sa ključem idempotentnosti; ponovljen zahtev vraća isti iznos
+    public double platiRezervaciju(String kljucIdempotentnosti, String idRezervacije) {
+        return kesPlacanja.izvrsi(kljucIdempotentnosti, idRezervacije, () -> platiRezervaciju(idRezervacije));
+    }
+
     // Metoda za plaćanje rezervacije
     public double platiRezervaciju(String idRezervacije) {
         Rezervacija rezervacija = rezervacije.get(idRezervacije);
         if (rezervacija == null) {
-            return -1; // model.Rezervacija ne postoji
+            // Plaćena rezervacija je možda već premeštena u arhivu
+            return (arhiva != null && arhiva.jePlacena(idRezervacije)) ? -2 : -1; // model.Rezervacija ne postoji
         }
 
         // Pronađi avio kompaniju za odlazni let
-        AvioKompanija avioKompanija = null;
-        for (AvioKompanija ak : avioKompanije.values()) {
-            if (ak.getNaziv().equals(rezervacija.getOdlazniLet().getAvioKompanija())) {
-                avioKompanija = ak;
-                break;
-            }
-        }
+        AvioKompanija avioKompanija = avioKompanije.get(rezervacija.getOdlazniLet().getAvioKompanija());
 
         if (avioKompanija == null) {
             return -2; // Avio kompanija nije pronađena
         }
 
-        // Plati rezervaciju kod avio kompanije
-        double cenaBezProvizije = avioKompanija.platiRezervaciju(idRezervacije, true);
+        // Plaćanje kod avio kompanije i provizija agenta nose istu verziju,
+        // pa ih svaki snimak vidi zajedno
+        return Verzije.uPisanju(verzija -> {
+            // Plati rezervaciju kod avio kompanije
+            double cenaBezProvizije = avioKompanija.platiRezervaciju(idRezervacije, true, verzija);
+
+            if (cenaBezProvizije < 0) {
+                return cenaBezProvizije; // Greška pri plaćanju
+            }
+
+            // Dodaj proviziju agenta
+            double cena = cenaBezProvizije * (1 + procenatProvizije);
 
-        if (cenaBezProvizije < 0) {
-            return cenaBezProvizije; // Greška pri plaćanju
+            // Ažuriraj dnevne prihode (samo provizija)
+            LocalDate danas = LocalDate.now();
+            double provizija = cenaBezProvizije * procenatProvizije;
+            dnevniPrihodi.computeIfAbsent(danas, datum -> new VerzionisaniZbir(0)).dodaj(verzija, provizija);
+
+            return cena;
+        });
+    }
+
+    // Metoda za otkazivanje rezervacije preko avio kompanije kojoj pripada odlazni let
+    public boolean otkaziRezervaciju(String idRezervacije) {
+        Rezervacija rezervacija = rezervacije.get(idRezervacije);
+        if (rezervacija == null) {
+            return false;
         }
 
-        // Dodaj proviziju agenta
-        double cena = cenaBezProvizije * (1 + procenatProvizije);
+        AvioKompanija avioKompanija = avioKompanije.get(rezervacija.getOdlazniLet().getAvioKompanija());
+        if (avioKompanija == null) {
+            return false;
+        }
+
+        return avioKompanija.otkaziRezervaciju(idRezervacije);
+    }
 
-        // Ažuriraj dnevne prihode (samo provizija)
-        LocalDate danas = LocalDate.now();
-        double provizija = cenaBezProvizije * procenatProvizije;
-        dnevniPrihodi.put(danas, dnevniPrihodi.getOrDefault(danas, 0.0) + provizija);
+    // Metoda za premeštanje plaćenih i isteklih rezervacija napravljenih pre granice u arhivu
+    public int arhivirajRezervacije(LocalDateTime granica) throws IOException {
+        return (arhiva != null) ? arhiva.premesti(rezervacije, granica) : 0;
+    }
 
-        return cena;
+    // Metoda za pronalaženje rezervacije u arhivi; null ako nije arhivirana
+    public ArhiviranaRezervacija nadjiArhiviranuRezervaciju(String idRezervacije) throws IOException {
+        return (arhiva != null) ? arhiva.nadji(idRezervacije) : null;
     }
 
     // Metoda za dobijanje dnevnog prihoda
     public double getDnevniPrihod(LocalDate datum) {
-        return dnevniPrihodi.getOrDefault(datum, 0.0);
+        VerzionisaniZbir prihod = dnevniPrihodi.get(datum);
+        return (prihod != null) ? prihod.getUkupno() : 0.0;
+    }
+
+    // Metoda za dnevni prihod u snimku
+    public double getDnevniPrihod(LocalDate datum, Snimak snimak) {
+        VerzionisaniZbir prihod = dnevniPrihodi.get(datum);
+        return (prihod != null) ? prihod.uVerziji(snimak.getVerzija()) : 0.0;
     }
 
     // Metoda za konkurentno plaćanje rezervacije
@@ -160,6 +310,12 @@ public class Agent implements Serializable {
         return executorService.submit(() -> platiRezervaciju(idRezervacije));
     }
 
+    // Metoda za konkurentno plaćanje rezervacije sa ključem idempotentnosti
+    public Future<Double> platiRezervacijuAsinhronno(final String kljucIdempotentnosti,
+                                                    final String idRezervacije) {
+        return executorService.submit(() -> platiRezervaciju(kljucIdempotentnosti, idRezervacije));
+    }
+
     // Getteri i setteri
     public String getNaziv() {
         return naziv;
@@ -169,6 +325,14 @@ public class Agent implements Serializable {
         return new HashMap<>(avioKompanije);
     }
 
+    public Stream<AvioKompanija> streamAvioKompanija() {
+        return avioKompanije.values().stream();
+    }
+
+    public void setArhiva(ArhivaRezervacija arhiva) {
+        this.arhiva = arhiva;
+    }
+
     public double getProcenatProvizije() {
         return procenatProvizije;
     }
@@ -176,8 +340,12 @@ public class Agent implements Serializable {
     // Metoda za serijalizaciju
     private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
         in.defaultReadObject();
+        // Starija verzija je čuvala dnevne prihode kao Double
+        VerzionisaniZbir.prevediStareVrednosti(dnevniPrihodi);
         // Reinicijalizacija transient polja
         this.executorService = Executors.newFixedThreadPool(3);
+        this.kesRezervacija = new KesIdempotentnosti<>();
+        this.kesPlacanja = new KesIdempotentnosti<>();
     }
 
     // Metoda za gašenje executora
@@ -0,0 +1,254 @@
+package model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Arhiva završenih rezervacija na disku. Zapisi se samo dopisuju na kraj segmenta;
+// kada segment dostigne maksimalnu veličinu, otvara se novi. Indeks ID -> pozicija
+// je u memoriji i pravi se ponovo čitanjem segmenata pri otvaranju arhive.
+// Kada arhiviraj vrati, zapisi su na disku, pa vlasnik sme da ih ukloni iz memorije.
+public class ArhivaRezervacija implements Closeable {
+
+    public static final long MAKSIMALNA_VELICINA_SEGMENTA = 64L * 1024 * 1024;
+
+    private static final String PREFIKS_SEGMENTA = "segment-";
+    private static final String EKSTENZIJA_SEGMENTA = ".arh";
+
+    // Pozicija zapisa: broj segmenta u gornjih 24 bita, pomeraj u segmentu u donjih 40
+    private static final int BITOVI_POMERAJA = 40;
+
+    private final Path direktorijum;
+    private final Map<String, Long> indeks;
+    private final Map<Integer, FileChannel> segmenti;
+
+    private int trenutniSegment;
+    private long velicinaTrenutnogSegmenta;
+
+    public ArhivaRezervacija(Path direktorijum) throws IOException {
+        this.direktorijum = direktorijum;
+        this.indeks = new ConcurrentHashMap<>();
+        this.segmenti = new ConcurrentHashMap<>();
+
+        Files.createDirectories(direktorijum);
+        List<Integer> postojeci = pronadjiSegmente();
+        for (int brojSegmenta : postojeci) {
+            ucitajSegment(brojSegmenta);
+        }
+
+        if (postojeci.isEmpty()) {
+            otvoriNoviSegment(1);
+        } else {
+            trenutniSegment = postojeci.get(postojeci.size() - 1);
+            velicinaTrenutnogSegmenta = segmenti.get(trenutniSegment).size();
+        }
+    }
+
+    // Metoda za upis rezervacije u arhivu; već arhivirana rezervacija se ne upisuje ponovo
+    public void arhiviraj(Rezervacija rezervacija) throws IOException {
+        arhiviraj(Collections.singletonList(rezervacija));
+    }
+
+    // Metoda za upis više rezervacija odjednom; segment se sinhronizuje sa diskom jednom,
+    // posle svih zapisa, a ne posebno za svaki zapis
+    public synchronized void arhiviraj(Collection<Rezervacija> rezervacije) throws IOException {
+        boolean upisano = false;
+        for (Rezervacija rezervacija : rezervacije) {
+            if (!indeks.containsKey(rezervacija.getId())) {
+                upisi(rezervacija);
+                upisano = true;
+            }
+        }
+        if (upisano) {
+            segmenti.get(trenutniSegment).force(false);
+        }
+    }
+
+    private void upisi(Rezervacija rezervacija) throws IOException {
+        ByteArrayOutputStream bajtovi = new ByteArrayOutputStream(128);
+        DataOutputStream izlaz = new DataOutputStream(bajtovi);
+        izlaz.writeInt(0); // Mesto za dužinu zapisa
+        ArhiviranaRezervacija.upisi(izlaz, rezervacija);
+        izlaz.flush();
+
+        ByteBuffer zapis = ByteBuffer.wrap(bajtovi.toByteArray());
+        zapis.putInt(0, zapis.remaining() - Integer.BYTES);
+
+        if (velicinaTrenutnogSegmenta + zapis.remaining() > MAKSIMALNA_VELICINA_SEGMENTA &&
+                velicinaTrenutnogSegmenta > 0) {
+            otvoriNoviSegment(trenutniSegment + 1);
+        }
+
+        FileChannel kanal = segmenti.get(trenutniSegment);
+        long pomeraj = velicinaTrenutnogSegmenta;
+        while (zapis.hasRemaining()) {
+            kanal.write(zapis, pomeraj + zapis.position());
+        }
+        velicinaTrenutnogSegmenta += zapis.capacity();
+
+        indeks.put(rezervacija.getId(), pozicija(trenutniSegment, pomeraj));
+    }
+
+    // Metoda za premeštanje plaćenih i isteklih rezervacija napravljenih pre granice iz mape
+    // vlasnika (avio kompanije ili agenta) u arhivu. Iz mape se uklanja tek kada su svi
+    // zapisi na disku; vraća broj uklonjenih rezervacija.
+    public int premesti(Map<String, Rezervacija> rezervacije, LocalDateTime granica) throws IOException {
+        List<Rezervacija> zaArhivu = new ArrayList<>();
+        for (Rezervacija rezervacija : rezervacije.values()) {
+            if (jeZaArhivu(rezervacija, granica)) {
+                zaArhivu.add(rezervacija);
+            }
+        }
+
+        arhiviraj(zaArhivu);
+        int brojUklonjenih = 0;
+        for (Rezervacija rezervacija : zaArhivu) {
+            if (rezervacije.remove(rezervacija.getId(), rezervacija)) {
+                brojUklonjenih++;
+            }
+        }
+        return brojUklonjenih;
+    }
+
+    // U arhivu idu završene rezervacije napravljene pre granice
+    static boolean jeZaArhivu(Rezervacija rezervacija, LocalDateTime granica) {
+        return rezervacija.getStatus() != Rezervacija.Status.AKTIVNA &&
+                rezervacija.getDatumRezervacije().isBefore(granica);
+    }
+
+    // Metoda za pronalaženje arhivirane rezervacije po ID-u; null ako nije u arhivi
+    public ArhiviranaRezervacija nadji(String idRezervacije) throws IOException {
+        Long pozicija = indeks.get(idRezervacije);
+        if (pozicija == null) {
+            return null;
+        }
+
+        FileChannel kanal = segmenti.get((int) (pozicija >>> BITOVI_POMERAJA));
+        long pomeraj = pozicija & ((1L << BITOVI_POMERAJA) - 1);
+
+        ByteBuffer duzina = ByteBuffer.allocate(Integer.BYTES);
+        procitajPotpuno(kanal, duzina, pomeraj);
+        ByteBuffer zapis = ByteBuffer.allocate(duzina.getInt(0));
+        procitajPotpuno(kanal, zapis, pomeraj + Integer.BYTES);
+
+        return ArhiviranaRezervacija.procitaj(
+                new DataInputStream(new ByteArrayInputStream(zapis.array())));
+    }
+
+    // Metoda za proveru da li je rezervacija arhivirana kao plaćena; greška pri čitanju se
+    // tretira kao da rezervacija nije u arhivi
+    public boolean jePlacena(String idRezervacije) {
+        try {
+            ArhiviranaRezervacija arhivirana = nadji(idRezervacije);
+            return arhivirana != null && arhivirana.getStatus() == Rezervacija.Status.PLACENA;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public boolean sadrzi(String idRezervacije) {
+        return indeks.containsKey(idRezervacije);
+    }
+
+    public int getBrojRezervacija() {
+        return indeks.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (FileChannel kanal : segmenti.values()) {
+            kanal.close();
+        }
+        segmenti.clear();
+    }
+
+    private List<Integer> pronadjiSegmente() throws IOException {
+        List<Integer> brojevi = new ArrayList<>();
+        try (DirectoryStream<Path> datoteke = Files.newDirectoryStream(direktorijum,
+                PREFIKS_SEGMENTA + "*" + EKSTENZIJA_SEGMENTA)) {
+            for (Path datoteka : datoteke) {
+                String ime = datoteka.getFileName().toString();
+                brojevi.add(Integer.parseInt(ime.substring(PREFIKS_SEGMENTA.length(),
+                        ime.length() - EKSTENZIJA_SEGMENTA.length())));
+            }
+        }
+        Collections.sort(brojevi);
+        return brojevi;
+    }
+
+    // Metoda za čitanje ID-eva iz postojećeg segmenta u indeks.
+    // Nepotpun zapis na kraju (npr. posle pada procesa) se odseca.
+    private void ucitajSegment(int brojSegmenta) throws IOException {
+        FileChannel kanal = FileChannel.open(putanjaSegmenta(brojSegmenta),
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segmenti.put(brojSegmenta, kanal);
+
+        long velicina = kanal.size();
+        long pomeraj = 0;
+        ByteBuffer duzina = ByteBuffer.allocate(Integer.BYTES);
+        while (pomeraj + Integer.BYTES <= velicina) {
+            duzina.clear();
+            procitajPotpuno(kanal, duzina, pomeraj);
+            int duzinaZapisa = duzina.getInt(0);
+            if (duzinaZapisa <= 0 || pomeraj + Integer.BYTES + duzinaZapisa > velicina) {
+                break;
+            }
+
+            ByteBuffer zapis = ByteBuffer.allocate(duzinaZapisa);
+            procitajPotpuno(kanal, zapis, pomeraj + Integer.BYTES);
+            String id = new DataInputStream(new ByteArrayInputStream(zapis.array())).readUTF();
+            indeks.put(id, pozicija(brojSegmenta, pomeraj));
+
+            pomeraj += Integer.BYTES + duzinaZapisa;
+        }
+
+        if (pomeraj < velicina) {
+            kanal.truncate(pomeraj);
+        }
+    }
+
+    private void otvoriNoviSegment(int brojSegmenta) throws IOException {
+        FileChannel trenutni = segmenti.get(trenutniSegment);
+        if (trenutni != null) {
+            trenutni.force(false);
+        }
+
+        FileChannel kanal = FileChannel.open(putanjaSegmenta(brojSegmenta), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segmenti.put(brojSegmenta, kanal);
+        trenutniSegment = brojSegmenta;
+        velicinaTrenutnogSegmenta = kanal.size();
+    }
+
+    private Path putanjaSegmenta(int brojSegmenta) {
+        return direktorijum.resolve(String.format("%s%05d%s", PREFIKS_SEGMENTA, brojSegmenta, EKSTENZIJA_SEGMENTA));
+    }
+
+    private static long pozicija(int brojSegmenta, long pomeraj) {
+        return ((long) brojSegmenta << BITOVI_POMERAJA) | pomeraj;
+    }
+
+    private static void procitajPotpuno(FileChannel kanal, ByteBuffer bafer, long pomeraj) throws IOException {
+        while (bafer.hasRemaining()) {
+            if (kanal.read(bafer, pomeraj + bafer.position()) < 0) {
+                throw new IOException("Neočekivan kraj segmenta arhive");
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package model;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Pozadinski posao koji periodično premešta završene rezervacije starije od
+// zadatog perioda iz mapa avio kompanija, agenata i klijenata u arhivu na disku.
+public class Arhivar {
+
+    private final ArhivaRezervacija arhiva;
+    private final Duration starost; // Koliko dugo završena rezervacija ostaje u memoriji
+
+    private final List<AvioKompanija> avioKompanije;
+    private final List<Agent> agenti;
+    private final List<Klijent> klijenti;
+
+    private ScheduledExecutorService planer;
+
+    public Arhivar(ArhivaRezervacija arhiva, Duration starost) {
+        this.arhiva = arhiva;
+        this.starost = starost;
+        this.avioKompanije = new CopyOnWriteArrayList<>();
+        this.agenti = new CopyOnWriteArrayList<>();
+        this.klijenti = new CopyOnWriteArrayList<>();
+    }
+
+    // Metode za registrovanje vlasnika rezervacija
+    public void registruj(AvioKompanija avioKompanija) {
+        avioKompanija.setArhiva(arhiva);
+        avioKompanije.add(avioKompanija);
+    }
+
+    public void registruj(Agent agent) {
+        agent.setArhiva(arhiva);
+        agenti.add(agent);
+    }
+
+    public void registruj(Klijent klijent) {
+        klijent.setArhiva(arhiva);
+        klijenti.add(klijent);
+    }
+
+    // Metoda za pokretanje periodičnog arhiviranja
+    public synchronized void pokreni(Duration period) {
+        if (planer != null) {
+            return;
+        }
+        planer = Executors.newSingleThreadScheduledExecutor(zadatak -> {
+            Thread nit = new Thread(zadatak, "arhivar");
+            nit.setDaemon(true);
+            return nit;
+        });
+        planer.scheduleWithFixedDelay(() -> {
+            try {
+                arhivirajSada();
+            } catch (IOException e) {
+                // Rezervacije koje nisu upisane ostaju u memoriji i pokušavaju se ponovo sledeći put
+                System.err.println("Arhivar - greška pri upisu u arhivu: " + e.getMessage());
+            } catch (RuntimeException e) {
+                // Izuzetak koji izađe iz zadatka bi tiho otkazao sve sledeće prolaze
+                System.err.println("Arhivar - neočekivana greška u prolazu arhiviranja: " + e);
+            }
+        }, period.toMillis(), period.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // Metoda za jedan prolaz arhiviranja; vraća broj uklonjenih rezervacija iz svih mapa
+    public int arhivirajSada() throws IOException {
+        LocalDateTime granica = LocalDateTime.now().minus(starost);
+        int ukupno = 0;
+
+        for (AvioKompanija avioKompanija : avioKompanije) {
+            // Istekle aktivne rezervacije prvo oslobađaju mesta, pa tek onda idu u arhivu
+            avioKompanija.otkaziIstekleRezervacije();
+            ukupno += avioKompanija.arhivirajRezervacije(granica);
+        }
+        for (Agent agent : agenti) {
+            ukupno += agent.arhivirajRezervacije(granica);
+        }
+        for (Klijent klijent : klijenti) {
+            ukupno += klijent.arhivirajRezervacije(granica);
+        }
+
+        return ukupno;
+    }
+
+    // Metoda za gašenje pozadinskog posla
+    public synchronized void zaustavi() {
+        if (planer != null) {
+            planer.shutdown();
+            planer = null;
+        }
+    }
+}
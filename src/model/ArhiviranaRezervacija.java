@@ -0,0 +1,145 @@
+package model;
+
+import java.io.DataInput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+// Sažet, nepromenljiv zapis završene rezervacije iz arhive.
+// Letovi se pamte samo po šifri, da arhiva ne bi držala žive Let objekte.
+public class ArhiviranaRezervacija {
+
+    private final String id;
+    private final Rezervacija.Status status;
+    private final int brojOsoba;
+    private final LocalDateTime datumRezervacije;
+    private final LocalDateTime rokPlacanja;
+    private final String avioKompanija;
+    private final String sifraOdlaznogLeta;
+    private final String sifraPovratnogLeta; // null ako nema povratnog leta
+    private final double cenaOdlaznogLeta;
+    private final double cenaPovratnogLeta;
+    private final double rezervacionaCena;
+
+    private ArhiviranaRezervacija(String id, Rezervacija.Status status, int brojOsoba,
+                                  LocalDateTime datumRezervacije, LocalDateTime rokPlacanja,
+                                  String avioKompanija, String sifraOdlaznogLeta, String sifraPovratnogLeta,
+                                  double cenaOdlaznogLeta, double cenaPovratnogLeta, double rezervacionaCena) {
+        this.id = id;
+        this.status = status;
+        this.brojOsoba = brojOsoba;
+        this.datumRezervacije = datumRezervacije;
+        this.rokPlacanja = rokPlacanja;
+        this.avioKompanija = avioKompanija;
+        this.sifraOdlaznogLeta = sifraOdlaznogLeta;
+        this.sifraPovratnogLeta = sifraPovratnogLeta;
+        this.cenaOdlaznogLeta = cenaOdlaznogLeta;
+        this.cenaPovratnogLeta = cenaPovratnogLeta;
+        this.rezervacionaCena = rezervacionaCena;
+    }
+
+    // Metoda za upis rezervacije u zapis arhive; ID mora biti prvo polje
+    static void upisi(DataOutputStream izlaz, Rezervacija rezervacija) throws IOException {
+        izlaz.writeUTF(rezervacija.getId());
+        izlaz.writeByte(rezervacija.getStatus().ordinal());
+        izlaz.writeInt(rezervacija.getBrojOsoba());
+        upisiVreme(izlaz, rezervacija.getDatumRezervacije());
+        upisiVreme(izlaz, rezervacija.getRokPlacanja());
+        izlaz.writeUTF(rezervacija.getOdlazniLet().getAvioKompanija());
+        izlaz.writeUTF(rezervacija.getOdlazniLet().getSifra());
+        izlaz.writeBoolean(rezervacija.getPovratniLet() != null);
+        if (rezervacija.getPovratniLet() != null) {
+            izlaz.writeUTF(rezervacija.getPovratniLet().getSifra());
+        }
+        izlaz.writeDouble(rezervacija.getCenaOdlaznogLeta());
+        izlaz.writeDouble(rezervacija.getCenaPovratnogLeta());
+        izlaz.writeDouble(rezervacija.izracunajRezervacionuCenu());
+    }
+
+    // Metoda za čitanje zapisa arhive
+    static ArhiviranaRezervacija procitaj(DataInput ulaz) throws IOException {
+        String id = ulaz.readUTF();
+        Rezervacija.Status status = Rezervacija.Status.values()[ulaz.readByte()];
+        int brojOsoba = ulaz.readInt();
+        LocalDateTime datumRezervacije = procitajVreme(ulaz);
+        LocalDateTime rokPlacanja = procitajVreme(ulaz);
+        String avioKompanija = ulaz.readUTF();
+        String sifraOdlaznogLeta = ulaz.readUTF();
+        String sifraPovratnogLeta = ulaz.readBoolean() ? ulaz.readUTF() : null;
+        return new ArhiviranaRezervacija(id, status, brojOsoba, datumRezervacije, rokPlacanja,
+                avioKompanija, sifraOdlaznogLeta, sifraPovratnogLeta,
+                ulaz.readDouble(), ulaz.readDouble(), ulaz.readDouble());
+    }
+
+    private static void upisiVreme(DataOutputStream izlaz, LocalDateTime vreme) throws IOException {
+        izlaz.writeLong(vreme.toEpochSecond(ZoneOffset.UTC));
+        izlaz.writeInt(vreme.getNano());
+    }
+
+    private static LocalDateTime procitajVreme(DataInput ulaz) throws IOException {
+        long sekunde = ulaz.readLong();
+        return LocalDateTime.ofEpochSecond(sekunde, ulaz.readInt(), ZoneOffset.UTC);
+    }
+
+    // Getteri
+    public String getId() {
+        return id;
+    }
+
+    public Rezervacija.Status getStatus() {
+        return status;
+    }
+
+    public int getBrojOsoba() {
+        return brojOsoba;
+    }
+
+    public LocalDateTime getDatumRezervacije() {
+        return datumRezervacije;
+    }
+
+    public LocalDateTime getRokPlacanja() {
+        return rokPlacanja;
+    }
+
+    public String getAvioKompanija() {
+        return avioKompanija;
+    }
+
+    public String getSifraOdlaznogLeta() {
+        return sifraOdlaznogLeta;
+    }
+
+    public String getSifraPovratnogLeta() {
+        return sifraPovratnogLeta;
+    }
+
+    public double getCenaOdlaznogLeta() {
+        return cenaOdlaznogLeta;
+    }
+
+    public double getCenaPovratnogLeta() {
+        return cenaPovratnogLeta;
+    }
+
+    public double getRezervacionaCena() {
+        return rezervacionaCena;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Arhivirana rezervacija ID: ").append(id).append("\n");
+        sb.append("Odlazni let: ").append(sifraOdlaznogLeta).append(" (").append(avioKompanija).append(")\n");
+        if (sifraPovratnogLeta != null) {
+            sb.append("Povratni let: ").append(sifraPovratnogLeta).append("\n");
+        }
+        sb.append("Broj osoba: ").append(brojOsoba).append("\n");
+        sb.append("Datum rezervacije: ").append(datumRezervacije).append("\n");
+        sb.append("Rok plaćanja: ").append(rokPlacanja).append("\n");
+        sb.append("Status: ").append(status).append("\n");
+        sb.append("Cena pri rezervaciji: ").append(rezervacionaCena);
+        return sb.toString();
+    }
+}
@@ -1,28 +1,59 @@
 package model;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.time.Duration;
 import java.time.LocalDate;
-import java.util.ArrayList;
+import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class AvioKompanija implements Serializable {
     private static final long serialVersionUID = 1L;
 
+    // Zajednički planer koji otkazuje rezervacije kojima je istekao rok plaćanja, da bi
+    // oslobođena mesta dobili klijenti sa liste čekanja i kada se ne arhivira
+    private static final ScheduledExecutorService PLANER_ISTEKA = Executors.newSingleThreadScheduledExecutor(zadatak -> {
+        Thread nit = new Thread(zadatak, "istek-rezervacija");
+        nit.setDaemon(true);
+        return nit;
+    });
+
     private String naziv;
     private Map<String, Let> letovi; // Ključ je šifra leta
     private Map<String, Rezervacija> rezervacije; // Ključ je ID rezervacije
-    private Map<LocalDate, Double> dnevniPrihodi;
+    private Map<LocalDate, VerzionisaniZbir> dnevniPrihodi;
     private double procenatPoputaZaAgente; // Popust koji daju agentima (npr. 0.05 za 5%)
 
+    // Liste čekanja za pune letove, ključ je šifra leta
+    private transient Map<String, ListaCekanja> listeCekanja;
+
+    // Rezultati zahteva sa ključem idempotentnosti, da ponovljeni zahtevi ne bi ponovo zauzimali mesta
+    private transient KesIdempotentnosti<Rezervacija> kesRezervacija;
+    private transient KesIdempotentnosti<Double> kesPlacanja;
+
+    // Arhiva u koju se premeštaju završene rezervacije (null ako se ne arhivira)
+    private transient ArhivaRezervacija arhiva;
+
     public AvioKompanija(String naziv, double procenatPoputaZaAgente) {
         this.naziv = naziv;
         this.letovi = new ConcurrentHashMap<>();
         this.rezervacije = new ConcurrentHashMap<>();
         this.dnevniPrihodi = new ConcurrentHashMap<>();
         this.procenatPoputaZaAgente = procenatPoputaZaAgente;
+        this.listeCekanja = new ConcurrentHashMap<>();
+        this.kesRezervacija = new KesIdempotentnosti<>();
+        this.kesPlacanja = new KesIdempotentnosti<>();
     }
 
     // Metoda za dodavanje leta
@@ -33,56 +64,157 @@ public class AvioKompanija implements Serializable {
     // Metoda za pronalaženje letova po kriterijumima
     public List<Let> nadjiLetove(Aerodrom polazniAerodrom, Aerodrom dolazniAerodrom,
                                  LocalDate datum) {
-        List<Let> rezultat = new ArrayList<>();
+        return streamLetova(KriterijumLeta.za(polazniAerodrom, dolazniAerodrom, datum))
+                .collect(Collectors.toList());
+    }
+
+    // Metoda za lenji prolazak kroz sve letove, bez kopiranja mape
+    public Stream<Let> streamLetova() {
+        return letovi.values().stream();
+    }
 
-        for (Let let : letovi.values()) {
-            if ((let.getPolazniAerodrom().equals(polazniAerodrom) ||
-                    let.getPolazniAerodrom().getGrad().equalsIgnoreCase(polazniAerodrom.getGrad())) &&
-                    (let.getDolazniAerodrom().equals(dolazniAerodrom) ||
-                            let.getDolazniAerodrom().getGrad().equalsIgnoreCase(dolazniAerodrom.getGrad())) &&
-                    let.getVremePolaska().toLocalDate().equals(datum) &&
-                    let.getPreostaliBrojMesta() > 0) {
+    // Metoda za lenji prolazak kroz letove koji zadovoljavaju kriterijum
+    public Stream<Let> streamLetova(KriterijumLeta kriterijum) {
+        return streamLetova().filter(kriterijum);
+    }
 
-                rezultat.add(let);
-            }
-        }
+    // Metoda za lenji prolazak kroz sve rezervacije, bez kopiranja mape
+    public Stream<Rezervacija> streamRezervacija() {
+        return rezervacije.values().stream();
+    }
 
-        return rezultat;
+    // Metoda za rezervacije koje su postojale u snimku; status u snimku daje Rezervacija.getStatus(Snimak)
+    public Stream<Rezervacija> streamRezervacija(Snimak snimak) {
+        return streamRezervacija().filter(rezervacija -> rezervacija.postojiU(snimak));
+    }
+
+    // Metoda za lenji prolazak kroz rezervacije sa datim statusom
+    public Stream<Rezervacija> streamRezervacija(Rezervacija.Status status) {
+        return streamRezervacija().filter(rezervacija -> rezervacija.getStatus() == status);
+    }
+
+    // Spliterator letova koji agent spaja sa letovima ostalih kompanija
+    Spliterator<Let> spliteratorLetova() {
+        return letovi.values().spliterator();
     }
 
     // Metoda za rezervaciju leta
     public Rezervacija rezervisiLet(String sifraLeta, String sifraPovratnogLeta,
                                     int brojOsoba, boolean zaAgenta) {
         Let odlazniLet = letovi.get(sifraLeta);
-        if (odlazniLet == null || !odlazniLet.rezervisiMesta(brojOsoba)) {
-            return null; // Nema leta ili nema dovoljno mesta
+        Let povratniLet = (sifraPovratnogLeta != null) ? letovi.get(sifraPovratnogLeta) : null;
+        if (odlazniLet == null || (sifraPovratnogLeta != null && povratniLet == null)) {
+            return null; // Nema leta
         }
 
-        Let povratniLet = null;
-        if (sifraPovratnogLeta != null) {
-            povratniLet = letovi.get(sifraPovratnogLeta);
-            if (povratniLet == null || !povratniLet.rezervisiMesta(brojOsoba)) {
-                // Ako ne možemo rezervisati povratni let, otkazujemo i odlazni
-                odlazniLet.otkaziRezervaciju(brojOsoba);
-                return null;
-            }
+        return Verzije.uPisanju(verzija ->
+                rezervisiLet(odlazniLet, povratniLet, brojOsoba, zaAgenta, verzija), odlazniLet, povratniLet);
+    }
+
+    // Rezervacija leta u okviru operacije sa datom verzijom; sve izmene nose istu verziju,
+    // a pozivalac drži oba leta zaključana (Verzije.uPisanju)
+    Rezervacija rezervisiLet(Let odlazniLet, Let povratniLet, int brojOsoba, boolean zaAgenta, long verzija) {
+        if (!odlazniLet.rezervisiMesta(brojOsoba, verzija)) {
+            return null; // Nema dovoljno mesta
+        }
+
+        if (povratniLet != null && !povratniLet.rezervisiMesta(brojOsoba, verzija)) {
+            // Ako ne možemo rezervisati povratni let, otkazujemo i odlazni
+            odlazniLet.otkaziRezervaciju(brojOsoba, verzija);
+            return null;
         }
 
         Rezervacija rezervacija = new Rezervacija(odlazniLet, povratniLet, brojOsoba);
+        rezervacija.setVerzijaKreiranja(verzija);
         rezervacije.put(rezervacija.getId(), rezervacija);
+        zakaziIstek(rezervacija);
 
         return rezervacija;
     }
 
+    // Metoda za rezervaciju leta sa ključem idempotentnosti; ponovljen zahtev vraća istu rezervaciju
+    public Rezervacija rezervisiLet(String kljucIdempotentnosti, String sifraLeta, String sifraPovratnogLeta,
+                                    int brojOsoba, boolean zaAgenta) {
+        return kesRezervacija.izvrsi(kljucIdempotentnosti,
+                Arrays.asList("let", sifraLeta, sifraPovratnogLeta, brojOsoba, zaAgenta),
+                () -> rezervisiLet(sifraLeta, sifraPovratnogLeta, brojOsoba, zaAgenta));
+    }
+
+    // Metoda za pravljenje ponude za brojOsoba mesta na letu
+    public Ponuda napraviPonudu(String sifraLeta, int brojOsoba) {
+        Let let = letovi.get(sifraLeta);
+        return (let != null) ? let.napraviPonudu(brojOsoba) : null;
+    }
+
+    // Metoda za rezervaciju leta po ponudama; cena iz ponuda ostaje zaključana
+    public Rezervacija rezervisiLet(Ponuda odlaznaPonuda, Ponuda povratnaPonuda, boolean zaAgenta) {
+        Let odlazniLet = letovi.get(odlaznaPonuda.getSifraLeta());
+        Let povratniLet = (povratnaPonuda != null) ? letovi.get(povratnaPonuda.getSifraLeta()) : null;
+        if (odlazniLet == null || (povratnaPonuda != null && povratniLet == null)) {
+            return null; // Nema leta
+        }
+
+        return Verzije.uPisanju(verzija ->
+                rezervisiLet(odlazniLet, povratniLet, odlaznaPonuda, povratnaPonuda, zaAgenta, verzija),
+                odlazniLet, povratniLet);
+    }
+
+    // Rezervacija po ponudama u okviru operacije sa datom verzijom; pozivalac drži oba leta zaključana
+    Rezervacija rezervisiLet(Let odlazniLet, Let povratniLet, Ponuda odlaznaPonuda, Ponuda povratnaPonuda,
+                             boolean zaAgenta, long verzija) {
+        if (povratnaPonuda != null && povratnaPonuda.getBrojMesta() != odlaznaPonuda.getBrojMesta()) {
+            return null; // Ponude moraju biti za isti broj osoba
+        }
+
+        if (!odlazniLet.rezervisiMesta(odlaznaPonuda, verzija)) {
+            return null; // Ponuda je istekla ili nema dovoljno mesta
+        }
+
+        if (povratnaPonuda != null && !povratniLet.rezervisiMesta(povratnaPonuda, verzija)) {
+            // Ako ne možemo rezervisati povratni let, otkazujemo i odlazni
+            odlazniLet.otkaziRezervaciju(odlaznaPonuda.getBrojMesta(), verzija);
+            odlaznaPonuda.vratiNeiskoriscenu();
+            return null;
+        }
+
+        Rezervacija rezervacija = new Rezervacija(odlazniLet, povratniLet, odlaznaPonuda, povratnaPonuda);
+        rezervacija.setVerzijaKreiranja(verzija);
+        rezervacije.put(rezervacija.getId(), rezervacija);
+        zakaziIstek(rezervacija);
+
+        return rezervacija;
+    }
+
+    // Metoda za rezervaciju po ponudama sa ključem idempotentnosti
+    public Rezervacija rezervisiLet(String kljucIdempotentnosti, Ponuda odlaznaPonuda, Ponuda povratnaPonuda,
+                                    boolean zaAgenta) {
+        return kesRezervacija.izvrsi(kljucIdempotentnosti,
+                Arrays.asList("ponuda", odlaznaPonuda, povratnaPonuda, zaAgenta),
+                () -> rezervisiLet(odlaznaPonuda, povratnaPonuda, zaAgenta));
+    }
+
+    // Metoda za plaćanje rezervacije sa ključem idempotentnosti; ponovljen zahtev vraća isti iznos
+    public double platiRezervaciju(String kljucIdempotentnosti, String idRezervacije, boolean zaAgenta) {
+        return kesPlacanja.izvrsi(kljucIdempotentnosti, Arrays.asList(idRezervacije, zaAgenta),
+                () -> platiRezervaciju(idRezervacije, zaAgenta));
+    }
+
     // Metoda za plaćanje rezervacije
     public double platiRezervaciju(String idRezervacije, boolean zaAgenta) {
+        return Verzije.uPisanju(verzija -> platiRezervaciju(idRezervacije, zaAgenta, verzija));
+    }
+
+    // Plaćanje u okviru operacije sa datom verzijom; agent ga koristi da bi i njegova
+    // provizija bila vidljiva u istim snimcima kao i prihod avio kompanije
+    double platiRezervaciju(String idRezervacije, boolean zaAgenta, long verzija) {
         Rezervacija rezervacija = rezervacije.get(idRezervacije);
         if (rezervacija == null) {
-            return -1; // model.Rezervacija ne postoji
+            // Plaćena rezervacija je možda već premeštena u arhivu
+            return (arhiva != null && arhiva.jePlacena(idRezervacije)) ? -2 : -1; // model.Rezervacija ne postoji
         }
 
-        if (rezervacija.getStatus() == Rezervacija.Status.PLACENA) {
-            return -2; // Već plaćena
+        if (rezervacija.getStatus() != Rezervacija.Status.AKTIVNA) {
+            return kodNeaktivne(rezervacija);
         }
 
         if (rezervacija.jeIstekla()) {
@@ -99,33 +231,146 @@ public class AvioKompanija implements Serializable {
             trenutnaCena = trenutnaCena * (1 - procenatPoputaZaAgente);
         }
 
-        // Ažuriraj status rezervacije
-        rezervacija.setStatus(Rezervacija.Status.PLACENA);
+        // Ažuriraj status rezervacije; ne uspeva ako je u međuvremenu plaćena ili otkazana
+        if (!rezervacija.zavrsi(Rezervacija.Status.PLACENA, verzija)) {
+            return kodNeaktivne(rezervacija);
+        }
 
         // Ažuriraj dnevne prihode
         LocalDate danas = LocalDate.now();
-        dnevniPrihodi.put(danas, dnevniPrihodi.getOrDefault(danas, 0.0) + trenutnaCena);
+        dnevniPrihodi.computeIfAbsent(danas, datum -> new VerzionisaniZbir(0)).dodaj(verzija, trenutnaCena);
 
         return trenutnaCena;
     }
 
-    // Metoda za otkazivanje rezervacije
+    private static double kodNeaktivne(Rezervacija rezervacija) {
+        return (rezervacija.getStatus() == Rezervacija.Status.PLACENA) ? -2 : -3; // Već plaćena ili otkazana
+    }
+
+    // Metoda za otkazivanje rezervacije; mesta se oslobađaju samo jednom, pri prelasku iz AKTIVNA u ISTEKLA
     public boolean otkaziRezervaciju(String idRezervacije) {
         Rezervacija rezervacija = rezervacije.get(idRezervacije);
-        if (rezervacija == null || rezervacija.getStatus() == Rezervacija.Status.PLACENA) {
+        if (rezervacija == null || rezervacija.getStatus() != Rezervacija.Status.AKTIVNA) {
             return false;
         }
 
-        // Oslobodi mesta
-        rezervacija.getOdlazniLet().otkaziRezervaciju(rezervacija.getBrojOsoba());
-        if (rezervacija.getPovratniLet() != null) {
-            rezervacija.getPovratniLet().otkaziRezervaciju(rezervacija.getBrojOsoba());
+        Let odlazniLet = rezervacija.getOdlazniLet();
+        Let povratniLet = rezervacija.getPovratniLet();
+        return Verzije.uPisanju(verzija -> {
+            if (!rezervacija.zavrsi(Rezervacija.Status.ISTEKLA, verzija)) {
+                return false; // Već plaćena ili otkazana u drugoj niti
+            }
+
+            // Oslobodi mesta
+            odlazniLet.otkaziRezervaciju(rezervacija.getBrojOsoba(), verzija);
+            if (povratniLet != null) {
+                povratniLet.otkaziRezervaciju(rezervacija.getBrojOsoba(), verzija);
+            }
+
+            // Oslobođena mesta dobijaju klijenti sa liste čekanja, u istoj operaciji
+            promovisiSaListeCekanja(odlazniLet, verzija);
+            if (povratniLet != null) {
+                promovisiSaListeCekanja(povratniLet, verzija);
+            }
+            return true;
+        }, odlazniLet, povratniLet);
+    }
+
+    // Metoda za zakazivanje otkazivanja rezervacije u trenutku kada joj istekne rok plaćanja
+    private void zakaziIstek(Rezervacija rezervacija) {
+        long doIsteka = Duration.between(LocalDateTime.now(), rezervacija.getRokPlacanja()).toMillis();
+        PLANER_ISTEKA.schedule(() -> otkaziAkoJeIstekla(rezervacija.getId()),
+                Math.max(doIsteka, 0) + 1, TimeUnit.MILLISECONDS);
+    }
+
+    private void otkaziAkoJeIstekla(String idRezervacije) {
+        Rezervacija rezervacija = rezervacije.get(idRezervacije);
+        if (rezervacija == null || rezervacija.getStatus() != Rezervacija.Status.AKTIVNA) {
+            return; // Plaćena, otkazana ili arhivirana u međuvremenu
+        }
+        if (!rezervacija.jeIstekla()) {
+            zakaziIstek(rezervacija);
+            return;
+        }
+        otkaziRezervaciju(idRezervacije);
+    }
+
+    // Metoda za otkazivanje svih aktivnih rezervacija kojima je istekao rok plaćanja
+    public int otkaziIstekleRezervacije() {
+        int brojOtkazanih = 0;
+        for (Rezervacija rezervacija : rezervacije.values()) {
+            if (rezervacija.getStatus() == Rezervacija.Status.AKTIVNA && rezervacija.jeIstekla() &&
+                    otkaziRezervaciju(rezervacija.getId())) {
+                brojOtkazanih++;
+            }
+        }
+        return brojOtkazanih;
+    }
+
+    // Metoda za premeštanje plaćenih i isteklih rezervacija napravljenih pre granice u arhivu.
+    // U mapi ostaju samo aktivne rezervacije i skorašnje završene.
+    public int arhivirajRezervacije(LocalDateTime granica) throws IOException {
+        return (arhiva != null) ? arhiva.premesti(rezervacije, granica) : 0;
+    }
+
+    // Metoda za pronalaženje rezervacije u arhivi; null ako nije arhivirana
+    public ArhiviranaRezervacija nadjiArhiviranuRezervaciju(String idRezervacije) throws IOException {
+        return (arhiva != null) ? arhiva.nadji(idRezervacije) : null;
+    }
+
+    // Metoda za stavljanje na listu čekanja po redosledu dolaska
+    public CompletableFuture<Rezervacija> staviNaListuCekanja(String sifraLeta, int brojOsoba) {
+        return staviNaListuCekanja(sifraLeta, brojOsoba, 0);
+    }
+
+    // Metoda za stavljanje na listu čekanja za let u jednom pravcu.
+    // Future se završava rezervacijom kada se oslobode mesta; klijent može da ga otkaže.
+    public CompletableFuture<Rezervacija> staviNaListuCekanja(String sifraLeta, int brojOsoba, int prioritet) {
+        Let let = letovi.get(sifraLeta);
+        if (let == null || brojOsoba <= 0 || brojOsoba > let.getUkupanBrojMesta()) {
+            return CompletableFuture.completedFuture(null);
         }
 
-        // Ažuriraj status rezervacije
-        rezervacija.setStatus(Rezervacija.Status.ISTEKLA);
+        ListaCekanja lista = listeCekanja.computeIfAbsent(sifraLeta, sifra -> new ListaCekanja());
+        CompletableFuture<Rezervacija> rezultat = lista.dodaj(brojOsoba, prioritet).getRezultat();
+
+        // Mesta su možda već slobodna
+        Verzije.uPisanju(verzija -> {
+            promovisiSaListeCekanja(let, verzija);
+            return null;
+        }, let);
+
+        return rezultat;
+    }
 
-        return true;
+    // Metoda za broj zahteva koji čekaju na let
+    public int getBrojNaListiCekanja(String sifraLeta) {
+        ListaCekanja lista = listeCekanja.get(sifraLeta);
+        return (lista != null) ? lista.getBrojZahteva() : 0;
+    }
+
+    // Metoda za pretvaranje zahteva sa liste čekanja u rezervacije, u okviru operacije
+    // sa datom verzijom; pozivalac drži let zaključan
+    private void promovisiSaListeCekanja(Let let, long verzija) {
+        ListaCekanja lista = listeCekanja.get(let.getSifra());
+        if (lista == null) {
+            return;
+        }
+
+        for (ListaCekanja.ZahtevNaCekanju zahtev : lista.promovisi(let, verzija)) {
+            Rezervacija rezervacija = new Rezervacija(let, null, zahtev.getBrojOsoba());
+            rezervacija.setVerzijaKreiranja(verzija);
+            rezervacije.put(rezervacija.getId(), rezervacija);
+            zakaziIstek(rezervacija);
+
+            // Klijenta obaveštavamo asinhrono, da ne zadržavamo nit koja je oslobodila mesta.
+            // Ako je klijent u međuvremenu odustao, mesta se ponovo oslobađaju.
+            CompletableFuture.runAsync(() -> {
+                if (!zahtev.getRezultat().complete(rezervacija)) {
+                    otkaziRezervaciju(rezervacija.getId());
+                }
+            });
+        }
     }
 
     // Metoda za dobijanje trenutne cene za rezervaciju
@@ -147,7 +392,14 @@ public class AvioKompanija implements Serializable {
 
     // Metoda za dobijanje dnevnog prihoda
     public double getDnevniPrihod(LocalDate datum) {
-        return dnevniPrihodi.getOrDefault(datum, 0.0);
+        VerzionisaniZbir prihod = dnevniPrihodi.get(datum);
+        return (prihod != null) ? prihod.getUkupno() : 0.0;
+    }
+
+    // Metoda za dnevni prihod u snimku
+    public double getDnevniPrihod(LocalDate datum, Snimak snimak) {
+        VerzionisaniZbir prihod = dnevniPrihodi.get(datum);
+        return (prihod != null) ? prihod.uVerziji(snimak.getVerzija()) : 0.0;
     }
 
     // Getteri i setteri
@@ -155,14 +407,38 @@ public class AvioKompanija implements Serializable {
         return naziv;
     }
 
+    public Let getLet(String sifraLeta) {
+        return letovi.get(sifraLeta);
+    }
+
     public Map<String, Let> getLetovi() {
         return new HashMap<>(letovi);
     }
 
+    public void setArhiva(ArhivaRezervacija arhiva) {
+        this.arhiva = arhiva;
+    }
+
     public double getProcenatPoputaZaAgente() {
         return procenatPoputaZaAgente;
     }
 
+    // Metoda za serijalizaciju
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        // Starija verzija je čuvala dnevne prihode kao Double
+        VerzionisaniZbir.prevediStareVrednosti(dnevniPrihodi);
+        // Reinicijalizacija transient polja; klijenti na listi čekanja se ne serijalizuju
+        listeCekanja = new ConcurrentHashMap<>();
+        kesRezervacija = new KesIdempotentnosti<>();
+        kesPlacanja = new KesIdempotentnosti<>();
+        for (Rezervacija rezervacija : rezervacije.values()) {
+            if (rezervacija.getStatus() == Rezervacija.Status.AKTIVNA) {
+                zakaziIstek(rezervacija);
+            }
+        }
+    }
+
     @Override
     public String toString() {
         return naziv;
@@ -0,0 +1,122 @@
+package model;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+// Ograničen keš rezultata po ključu idempotentnosti. Ponovljen zahtev sa istim ključem
+// dobija rezultat prvog zahteva (ili čeka da se prvi završi) umesto da se posao ponovi.
+// Uz ključ se pamti i opis zahteva (operacija i argumenti), pa se isti ključ upotrebljen
+// za drugačiji zahtev odbija umesto da vrati tuđ rezultat.
+class KesIdempotentnosti<V> {
+
+    static final int PODRAZUMEVANI_KAPACITET = 10_000;
+    static final Duration PODRAZUMEVANO_TRAJANJE = Duration.ofHours(1);
+
+    private final int kapacitet;
+    private final long trajanjeNanos;
+
+    // Redosled umetanja je i redosled isticanja, jer svi unosi traju isto
+    private final LinkedHashMap<String, Unos<V>> unosi;
+
+    KesIdempotentnosti() {
+        this(PODRAZUMEVANI_KAPACITET, PODRAZUMEVANO_TRAJANJE);
+    }
+
+    KesIdempotentnosti(int kapacitet, Duration trajanje) {
+        this.kapacitet = kapacitet;
+        this.trajanjeNanos = trajanje.toNanos();
+        this.unosi = new LinkedHashMap<>();
+    }
+
+    // Metoda za izvršavanje akcije najviše jednom po ključu. Opisi zahteva se porede sa equals;
+    // ako se razlikuju, baca se IllegalArgumentException. Bez ključa akcija se uvek izvršava.
+    V izvrsi(String kljuc, Object zahtev, Supplier<V> akcija) {
+        if (kljuc == null) {
+            return akcija.get();
+        }
+
+        Unos<V> postojeci;
+        Unos<V> novi = null;
+        synchronized (this) {
+            long sada = System.nanoTime();
+            ukloniIstekle(sada);
+
+            postojeci = unosi.get(kljuc);
+            if (postojeci != null && !postojeci.zahtev.equals(zahtev)) {
+                throw new IllegalArgumentException("Ključ idempotentnosti " + kljuc +
+                        " je već upotrebljen za drugačiji zahtev");
+            }
+            if (postojeci == null) {
+                novi = new Unos<>(zahtev, sada + trajanjeNanos);
+                unosi.put(kljuc, novi);
+                if (unosi.size() > kapacitet) {
+                    Iterator<Unos<V>> najstariji = unosi.values().iterator();
+                    najstariji.next();
+                    najstariji.remove();
+                }
+            }
+        }
+
+        if (postojeci != null) {
+            return sacekaj(postojeci);
+        }
+
+        try {
+            V rezultat = akcija.get();
+            novi.rezultat.complete(rezultat);
+            return rezultat;
+        } catch (Throwable e) {
+            // Neuspeo zahtev se ne pamti, ponovni pokušaj ga izvršava iznova. Hvata se i Error,
+            // da zahtevi koji čekaju isti ključ ne bi čekali zauvek.
+            synchronized (this) {
+                unosi.remove(kljuc, novi);
+            }
+            novi.rezultat.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    // Metoda za čekanje rezultata prvog zahteva; ako on nije uspeo, baca se njegov izuzetak
+    private static <V> V sacekaj(Unos<V> unos) {
+        try {
+            return unos.rezultat.join();
+        } catch (CompletionException e) {
+            Throwable uzrok = e.getCause();
+            if (uzrok instanceof RuntimeException) {
+                throw (RuntimeException) uzrok;
+            }
+            if (uzrok instanceof Error) {
+                throw (Error) uzrok;
+            }
+            throw e;
+        }
+    }
+
+    synchronized int getBrojUnosa() {
+        return unosi.size();
+    }
+
+    private void ukloniIstekle(long sada) {
+        Iterator<Map.Entry<String, Unos<V>>> iterator = unosi.entrySet().iterator();
+        while (iterator.hasNext() && iterator.next().getValue().istice - sada <= 0) {
+            iterator.remove();
+        }
+    }
+
+    private static class Unos<V> {
+        private final Object zahtev;
+        private final CompletableFuture<V> rezultat;
+        private final long istice;
+
+        Unos(Object zahtev, long istice) {
+            this.zahtev = zahtev;
+            this.rezultat = new CompletableFuture<>();
+            this.istice = istice;
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package model;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
 
 public class Klijent implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -11,11 +15,16 @@ public class Klijent implements Serializable {
     private String id;
     private String ime;
     private List<Rezervacija> rezervacije;
+    private List<String> arhiviraneRezervacije; // ID-evi rezervacija premeštenih u arhivu
+
+    // Arhiva u koju se premeštaju završene rezervacije (null ako se ne arhivira)
+    private transient ArhivaRezervacija arhiva;
 
     public Klijent(String id, String ime) {
         this.id = id;
         this.ime = ime;
         this.rezervacije = new CopyOnWriteArrayList<>();
+        this.arhiviraneRezervacije = new CopyOnWriteArrayList<>();
     }
 
     // Metoda za dodavanje rezervacije
@@ -36,7 +45,8 @@ public class Klijent implements Serializable {
         return aktivne;
     }
 
-    // Metoda za dobijanje istorije rezervacija
+    // Metoda za dobijanje istorije rezervacija koje su još u memoriji. Rezervacije premeštene
+    // u arhivu (vidi arhivirajRezervacije) se ovde ne vraćaju; njih vraća getArhiviraneRezervacije.
     public List<Rezervacija> getIstorijaRezervacija() {
         List<Rezervacija> istorija = new ArrayList<>();
 
@@ -51,6 +61,47 @@ public class Klijent implements Serializable {
         return istorija;
     }
 
+    // Metoda za premeštanje plaćenih i isteklih rezervacija napravljenih pre granice u arhivu
+    public int arhivirajRezervacije(LocalDateTime granica) throws IOException {
+        if (arhiva == null) {
+            return 0;
+        }
+
+        List<Rezervacija> zaArhivu = new ArrayList<>();
+        List<String> idArhiviranih = new ArrayList<>();
+        for (Rezervacija rezervacija : rezervacije) {
+            if (ArhivaRezervacija.jeZaArhivu(rezervacija, granica)) {
+                zaArhivu.add(rezervacija);
+                idArhiviranih.add(rezervacija.getId());
+            }
+        }
+
+        if (!zaArhivu.isEmpty()) {
+            // Iz liste se uklanja tek kada su svi zapisi na disku
+            arhiva.arhiviraj(zaArhivu);
+            arhiviraneRezervacije.addAll(idArhiviranih);
+            // Jedno kopiranje liste umesto po jednog za svaku uklonjenu rezervaciju
+            rezervacije.removeAll(new HashSet<>(zaArhivu));
+        }
+        return zaArhivu.size();
+    }
+
+    // Metoda za dobijanje rezervacija iz arhive
+    public List<ArhiviranaRezervacija> getArhiviraneRezervacije() throws IOException {
+        List<ArhiviranaRezervacija> arhivirane = new ArrayList<>();
+        if (arhiva == null) {
+            return arhivirane;
+        }
+
+        for (String idRezervacije : arhiviraneRezervacije) {
+            ArhiviranaRezervacija arhivirana = arhiva.nadji(idRezervacije);
+            if (arhivirana != null) {
+                arhivirane.add(arhivirana);
+            }
+        }
+        return arhivirane;
+    }
+
     // Getteri i setteri
     public String getId() {
         return id;
@@ -64,6 +115,29 @@ public class Klijent implements Serializable {
         return new ArrayList<>(rezervacije);
     }
 
+    // Metoda za lenji prolazak kroz rezervacije; CopyOnWriteArrayList daje
+    // nepromenljiv presek liste bez kopiranja, koji se može deliti za paralelni stream
+    public Stream<Rezervacija> streamRezervacija() {
+        return rezervacije.stream();
+    }
+
+    // Metoda za lenji prolazak kroz rezervacije sa datim statusom
+    public Stream<Rezervacija> streamRezervacija(Rezervacija.Status status) {
+        return streamRezervacija().filter(rezervacija -> rezervacija.getStatus() == status);
+    }
+
+    public void setArhiva(ArhivaRezervacija arhiva) {
+        this.arhiva = arhiva;
+    }
+
+    // Metoda za serijalizaciju; klijent sačuvan pre uvođenja arhive nema listu arhiviranih
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (arhiviraneRezervacije == null) {
+            this.arhiviraneRezervacije = new CopyOnWriteArrayList<>();
+        }
+    }
+
     @Override
     public String toString() {
         return ime + " (ID: " + id + ")";
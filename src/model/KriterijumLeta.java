@@ -0,0 +1,61 @@
+package model;
+
+import java.time.LocalDate;
+import java.util.function.Predicate;
+
+// Kriterijumi pretrage letova koji se primenjuju direktno nad kolekcijom letova,
+// bez pravljenja kopije. Kriterijum koji nije postavljen ne ograničava rezultat.
+public class KriterijumLeta implements Predicate<Let> {
+
+    private SkupAerodroma polazniAerodromi;
+    private SkupAerodroma dolazniAerodromi;
+    private LocalDate datum;
+    private int minimalnoSlobodnihMesta;
+
+    // Metoda za pravljenje kriterijuma koji propusta sve letove
+    public static KriterijumLeta svi() {
+        return new KriterijumLeta();
+    }
+
+    // Metoda za pravljenje kriterijuma koji odgovara postojećoj pretrazi (relacija, datum, ima mesta)
+    public static KriterijumLeta za(Aerodrom polazniAerodrom, Aerodrom dolazniAerodrom, LocalDate datum) {
+        return new KriterijumLeta()
+                .saRelacijom(polazniAerodrom, dolazniAerodrom)
+                .saDatumom(datum)
+                .saSlobodnimMestima(1);
+    }
+
+    // Aerodrom odgovara ako je isti, u istom gradu ili u istoj metro oblasti. Skupovi
+    // se razrešavaju jednom, pa se za svaki let porede samo ID-evi iz RegistarAerodroma
+    public KriterijumLeta saRelacijom(Aerodrom polazniAerodrom, Aerodrom dolazniAerodrom) {
+        RegistarAerodroma registar = RegistarAerodroma.getInstanca();
+        this.polazniAerodromi = registar.razresi(polazniAerodrom);
+        this.dolazniAerodromi = registar.razresi(dolazniAerodrom);
+        return this;
+    }
+
+    public KriterijumLeta saDatumom(LocalDate datum) {
+        this.datum = datum;
+        return this;
+    }
+
+    public KriterijumLeta saSlobodnimMestima(int minimalnoSlobodnihMesta) {
+        this.minimalnoSlobodnihMesta = minimalnoSlobodnihMesta;
+        return this;
+    }
+
+    @Override
+    public boolean test(Let let) {
+        // Jeftinije provere idu prve, broj mesta se čita pod lock-om leta
+        if (datum != null && !let.getVremePolaska().toLocalDate().equals(datum)) {
+            return false;
+        }
+        if (polazniAerodromi != null && !polazniAerodromi.sadrzi(let.getPolazniId())) {
+            return false;
+        }
+        if (dolazniAerodromi != null && !dolazniAerodromi.sadrzi(let.getDolazniId())) {
+            return false;
+        }
+        return minimalnoSlobodnihMesta <= 0 || let.getPreostaliBrojMesta() >= minimalnoSlobodnihMesta;
+    }
+}
@@ -25,13 +25,22 @@ public class Let implements Serializable {
     // Lock za sinhronizovano čitanje/pisanje cene i preostalih mesta
     private transient ReadWriteLock lock = new ReentrantReadWriteLock();
 
+    // kumulativneCene[z] je zbir cena prvih z prodatih mesta; računa se jednom,
+    // pa je cena za k mesta razlika dva elementa tabele
+    private transient double[] kumulativneCene;
+
+    // Broj zauzetih mesta po verzijama, za čitanje iz snimka bez zaključavanja leta
+    private transient VerzionisaniZbir zauzetaMesta;
+
+    // ID-evi aerodroma iz RegistarAerodroma, da pretraga poredi brojeve umesto stringova
+    private transient int polazniId;
+    private transient int dolazniId;
+
     public Let(String sifra, Aerodrom polazniAerodrom, Aerodrom dolazniAerodrom,
                LocalDateTime vremePolaska, String avioKompanija, int ukupanBrojMesta,
                double pocetnaCena, double maksimalnaCena, int mestaPoCenovnomPragu,
                double povecanjeCene) {
         this.sifra = sifra;
-        this.polazniAerodrom = polazniAerodrom;
-        this.dolazniAerodrom = dolazniAerodrom;
         this.vremePolaska = vremePolaska;
         this.avioKompanija = avioKompanija;
         this.ukupanBrojMesta = ukupanBrojMesta;
@@ -41,16 +50,91 @@ public class Let implements Serializable {
         this.maksimalnaCena = maksimalnaCena;
         this.mestaPoCenovnomPragu = mestaPoCenovnomPragu;
         this.povecanjeCene = povecanjeCene;
+        this.kumulativneCene = izracunajTabeluCena();
+        this.zauzetaMesta = new VerzionisaniZbir(0);
+        registrujAerodrome(polazniAerodrom, dolazniAerodrom);
+    }
+
+    // Metoda za zamenu aerodroma jedinstvenim instancama iz registra
+    private void registrujAerodrome(Aerodrom polazni, Aerodrom dolazni) {
+        RegistarAerodroma registar = RegistarAerodroma.getInstanca();
+        this.polazniAerodrom = registar.registruj(polazni);
+        this.dolazniAerodrom = registar.registruj(dolazni);
+        this.polazniId = this.polazniAerodrom.getId();
+        this.dolazniId = this.dolazniAerodrom.getId();
+    }
+
+    // Metoda za računanje tabele cena po cenovnim pragovima
+    private double[] izracunajTabeluCena() {
+        double[] tabela = new double[ukupanBrojMesta + 1];
+        for (int zauzeta = 0; zauzeta < ukupanBrojMesta; zauzeta++) {
+            double cena = pocetnaCena + (zauzeta / mestaPoCenovnomPragu) * povecanjeCene;
+            tabela[zauzeta + 1] = tabela[zauzeta] + Math.min(cena, maksimalnaCena);
+        }
+        return tabela;
+    }
+
+    // Metoda za tačnu ukupnu cenu sledećih brojMesta mesta, bez zaključavanja.
+    // Vraća -1 ako trenutno nema dovoljno slobodnih mesta.
+    public double izracunajCenu(int brojMesta) {
+        int preostalo = preostaliBrojMesta.get();
+        if (brojMesta <= 0 || brojMesta > preostalo) {
+            return -1;
+        }
+        int zauzeta = ukupanBrojMesta - preostalo;
+        return kumulativneCene[zauzeta + brojMesta] - kumulativneCene[zauzeta];
+    }
+
+    // Metoda za pravljenje ponude koja se kasnije može zaključati rezervacijom
+    public Ponuda napraviPonudu(int brojMesta) {
+        double ukupnaCena = izracunajCenu(brojMesta);
+        if (ukupnaCena < 0) {
+            return null;
+        }
+        return new Ponuda(sifra, brojMesta, ukupnaCena);
+    }
+
+    // Metoda za rezervaciju mesta po ranije dobijenoj ponudi
+    public boolean rezervisiMesta(Ponuda ponuda) {
+        return Verzije.uPisanju(verzija -> rezervisiMesta(ponuda, verzija), this);
+    }
+
+    // Ponuda se prihvata samo ako je cena tih mesta i dalje ista kao u ponudi; tada mesta
+    // sigurno postoje, pa se ponuda troši tek kada je rezervacija izvesna
+    boolean rezervisiMesta(Ponuda ponuda, long verzija) {
+        if (ponuda == null || !sifra.equals(ponuda.getSifraLeta()) || ponuda.jeIstekla()) {
+            return false;
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (izracunajCenu(ponuda.getBrojMesta()) != ponuda.getUkupnaCena() || !ponuda.iskoristi()) {
+                return false; // Cena se promenila ili je ponuda već iskorišćena
+            }
+            return rezervisiMesta(ponuda.getBrojMesta(), verzija);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     // Metoda za rezervaciju mesta
     public boolean rezervisiMesta(int brojMesta) {
+        return Verzije.uPisanju(verzija -> rezervisiMesta(brojMesta, verzija), this);
+    }
+
+    // Rezervacija mesta u okviru operacije sa datom verzijom; broj mesta mora biti pozitivan
+    boolean rezervisiMesta(int brojMesta, long verzija) {
+        if (brojMesta <= 0) {
+            return false;
+        }
+
         lock.writeLock().lock();
         try {
             if (preostaliBrojMesta.get() >= brojMesta) {
                 // Izračunaj novi broj mesta i ažuriraj cenu
                 int noviBrojMesta = preostaliBrojMesta.addAndGet(-brojMesta);
                 azurirajCenu(noviBrojMesta);
+                zauzetaMesta.dodaj(verzija, brojMesta);
                 return true;
             }
             return false;
@@ -61,8 +145,21 @@ public class Let implements Serializable {
 
     // Metoda za otkazivanje rezervacije
     public void otkaziRezervaciju(int brojMesta) {
+        Verzije.uPisanju(verzija -> {
+            otkaziRezervaciju(brojMesta, verzija);
+            return null;
+        }, this);
+    }
+
+    // Otkazivanje u okviru operacije sa datom verzijom
+    void otkaziRezervaciju(int brojMesta, long verzija) {
+        if (brojMesta <= 0) {
+            return;
+        }
+
         lock.writeLock().lock();
         try {
+            int stariBrojMesta = preostaliBrojMesta.get();
             int noviBrojMesta = preostaliBrojMesta.addAndGet(brojMesta);
             // Ne smemo preći ukupan broj mesta
             if (noviBrojMesta > ukupanBrojMesta) {
@@ -70,13 +167,28 @@ public class Let implements Serializable {
                 noviBrojMesta = ukupanBrojMesta;
             }
             azurirajCenu(noviBrojMesta);
+            zauzetaMesta.dodaj(verzija, stariBrojMesta - noviBrojMesta);
         } finally {
             lock.writeLock().unlock();
         }
     }
 
+    // Let ostaje zaključan tokom cele operacije pisanja, da bi verzije izmena na letu
+    // išle redom kojim izmene stupaju na snagu (vidi Verzije.uPisanju)
+    void zakljucajZaPisanje() {
+        lock.writeLock().lock();
+    }
+
+    void otkljucajZaPisanje() {
+        lock.writeLock().unlock();
+    }
+
     // Metoda za ažuriranje cene na osnovu broja preostalih mesta
     private void azurirajCenu(int preostaliBrojMesta) {
+        trenutnaCena = izracunajCenuZaPreostalo(preostaliBrojMesta);
+    }
+
+    private double izracunajCenuZaPreostalo(int preostaliBrojMesta) {
         // Izračunaj koliko je pragova prošlo
         int zauzetaMesta = ukupanBrojMesta - preostaliBrojMesta;
         int brojPragova = zauzetaMesta / mestaPoCenovnomPragu;
@@ -89,7 +201,17 @@ public class Let implements Serializable {
             novaCena = maksimalnaCena;
         }
 
-        trenutnaCena = novaCena;
+        return novaCena;
+    }
+
+    // Metoda za broj preostalih mesta u snimku
+    public int getPreostaliBrojMesta(Snimak snimak) {
+        return ukupanBrojMesta - (int) zauzetaMesta.uVerziji(snimak.getVerzija());
+    }
+
+    // Metoda za cenu leta u snimku; cena zavisi samo od broja zauzetih mesta
+    public double getTrenutnaCena(Snimak snimak) {
+        return izracunajCenuZaPreostalo(getPreostaliBrojMesta(snimak));
     }
 
     // Getteri i setteri
@@ -105,6 +227,14 @@ public class Let implements Serializable {
         return dolazniAerodrom;
     }
 
+    int getPolazniId() {
+        return polazniId;
+    }
+
+    int getDolazniId() {
+        return dolazniId;
+    }
+
     public LocalDateTime getVremePolaska() {
         return vremePolaska;
     }
@@ -156,5 +286,8 @@ public class Let implements Serializable {
         in.defaultReadObject();
         // Reinicijalizacija transient polja
         lock = new ReentrantReadWriteLock();
+        kumulativneCene = izracunajTabeluCena();
+        zauzetaMesta = new VerzionisaniZbir(ukupanBrojMesta - preostaliBrojMesta.get());
+        registrujAerodrome(polazniAerodrom, dolazniAerodrom);
     }
 }
\ No newline at end of file
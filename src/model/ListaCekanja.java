@@ -0,0 +1,84 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+
+// Lista čekanja za jedan let. Zahtevi se uslužuju po prioritetu (veći prvi),
+// a u okviru istog prioriteta redom kojim su stigli (FIFO).
+class ListaCekanja {
+
+    private final PriorityQueue<ZahtevNaCekanju> zahtevi;
+    private long sledeciRedniBroj;
+
+    ListaCekanja() {
+        this.zahtevi = new PriorityQueue<>(Comparator
+                .comparingInt(ZahtevNaCekanju::getPrioritet).reversed()
+                .thenComparingLong(ZahtevNaCekanju::getRedniBroj));
+    }
+
+    // Metoda za dodavanje zahteva na listu
+    synchronized ZahtevNaCekanju dodaj(int brojOsoba, int prioritet) {
+        ZahtevNaCekanju zahtev = new ZahtevNaCekanju(brojOsoba, prioritet, sledeciRedniBroj++);
+        zahtevi.add(zahtev);
+        return zahtev;
+    }
+
+    // Metoda za zauzimanje mesta za zahteve sa početka liste, dok god ima mesta.
+    // Ako prvi zahtev ne može da stane, ne preskačemo ga, da veće grupe ne bi čekale zauvek.
+    synchronized List<ZahtevNaCekanju> promovisi(Let let, long verzija) {
+        List<ZahtevNaCekanju> promovisani = new ArrayList<>();
+
+        ZahtevNaCekanju prvi;
+        while ((prvi = zahtevi.peek()) != null) {
+            if (prvi.getRezultat().isDone()) {
+                zahtevi.poll(); // Klijent je odustao od čekanja
+                continue;
+            }
+            if (!let.rezervisiMesta(prvi.getBrojOsoba(), verzija)) {
+                break;
+            }
+            zahtevi.poll();
+            promovisani.add(prvi);
+        }
+
+        return promovisani;
+    }
+
+    synchronized int getBrojZahteva() {
+        return zahtevi.size();
+    }
+
+    // Jedan zahtev na listi čekanja; klijent dobija rezultat kada se oslobode mesta
+    static class ZahtevNaCekanju {
+        private final int brojOsoba;
+        private final int prioritet;
+        private final long redniBroj;
+        private final CompletableFuture<Rezervacija> rezultat;
+
+        ZahtevNaCekanju(int brojOsoba, int prioritet, long redniBroj) {
+            this.brojOsoba = brojOsoba;
+            this.prioritet = prioritet;
+            this.redniBroj = redniBroj;
+            this.rezultat = new CompletableFuture<>();
+        }
+
+        int getBrojOsoba() {
+            return brojOsoba;
+        }
+
+        int getPrioritet() {
+            return prioritet;
+        }
+
+        long getRedniBroj() {
+            return redniBroj;
+        }
+
+        CompletableFuture<Rezervacija> getRezultat() {
+            return rezultat;
+        }
+    }
+}
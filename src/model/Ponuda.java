@@ -0,0 +1,81 @@
+package model;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// Tačna ponuda za rezervaciju više mesta na jednom letu.
+// Ukupna cena uključuje sve cenovne pragove koje grupa prelazi.
+// Ponuda se koristi za najviše jednu rezervaciju i ne garantuje cenu: ako su druge
+// rezervacije ili otkazivanja u međuvremenu promenili cenu tih mesta, treba tražiti novu.
+public class Ponuda implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // Koliko dugo se ponuda može iskoristiti za rezervaciju po ponuđenoj ceni
+    public static final Duration TRAJANJE_PONUDE = Duration.ofMinutes(15);
+
+    private String sifraLeta;
+    private int brojMesta;
+    private double ukupnaCena;
+    private LocalDateTime vremePonude;
+    private LocalDateTime rokVazenja;
+    private boolean iskoriscena;
+
+    Ponuda(String sifraLeta, int brojMesta, double ukupnaCena) {
+        this.sifraLeta = sifraLeta;
+        this.brojMesta = brojMesta;
+        this.ukupnaCena = ukupnaCena;
+        this.vremePonude = LocalDateTime.now();
+        this.rokVazenja = vremePonude.plus(TRAJANJE_PONUDE);
+    }
+
+    // Metoda za proveru da li je ponuda istekla
+    public boolean jeIstekla() {
+        return LocalDateTime.now().isAfter(rokVazenja);
+    }
+
+    // Metoda za označavanje ponude kao iskorišćene; vraća false ako je već iskorišćena
+    synchronized boolean iskoristi() {
+        if (iskoriscena) {
+            return false;
+        }
+        iskoriscena = true;
+        return true;
+    }
+
+    // Metoda za vraćanje ponude kada se rezervacija ipak poništi (npr. nema mesta za povratni let)
+    synchronized void vratiNeiskoriscenu() {
+        iskoriscena = false;
+    }
+
+    public synchronized boolean jeIskoriscena() {
+        return iskoriscena;
+    }
+
+    // Getteri
+    public String getSifraLeta() {
+        return sifraLeta;
+    }
+
+    public int getBrojMesta() {
+        return brojMesta;
+    }
+
+    public double getUkupnaCena() {
+        return ukupnaCena;
+    }
+
+    public LocalDateTime getVremePonude() {
+        return vremePonude;
+    }
+
+    public LocalDateTime getRokVazenja() {
+        return rokVazenja;
+    }
+
+    @Override
+    public String toString() {
+        return "Ponuda za let " + sifraLeta + ": " + brojMesta + " mesta, ukupno " + ukupnaCena +
+                " (važi do " + rokVazenja + ")";
+    }
+}
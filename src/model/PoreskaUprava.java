@@ -3,6 +3,7 @@ package model;
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -32,6 +33,19 @@ public class PoreskaUprava implements Serializable {
         return true;
     }
 
+    // Metoda za prijavljivanje dnevnih prihoda svih kompanija iz jednog snimka,
+    // tako da su svi iznosi međusobno usklađeni, a rezervacije se ne zaustavljaju
+    public void prijaviDnevnePrihode(LocalDate datum, List<AvioKompanija> avioKompanije, List<Agent> agenti) {
+        try (Snimak snimak = Snimak.napravi()) {
+            for (AvioKompanija avioKompanija : avioKompanije) {
+                prijaviDnevniPrihod(avioKompanija.getNaziv(), datum, avioKompanija.getDnevniPrihod(datum, snimak));
+            }
+            for (Agent agent : agenti) {
+                prijaviDnevniPrihod(agent.getNaziv(), datum, agent.getDnevniPrihod(datum, snimak));
+            }
+        }
+    }
+
     // Metoda za dobijanje prijavljenih prihoda kompanije za određeni datum
     public double getPrijavljeniPrihod(String nazivKompanije, LocalDate datum) {
         if (!prijavljeniPrihodi.containsKey(nazivKompanije)) {
@@ -0,0 +1,158 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Registar u kome svaki aerodrom postoji tačno jednom (po šifri) i ima gust celobrojni ID.
+// Grupe aerodroma po gradu i po metropolitenskoj oblasti se računaju unapred, pa pretraga
+// jednom pretvori polazni i dolazni aerodrom u skup ID-eva i dalje poredi samo brojeve.
+public class RegistarAerodroma {
+
+    private static final RegistarAerodroma INSTANCA = new RegistarAerodroma();
+
+    private final List<Aerodrom> poId;
+
+    // Trenutne grupe; čitaju se bez zaključavanja, pa se posle objavljivanja menjaju samo
+    // dodavanjem novih ključeva i kopija BitSet-ova. Nova metro oblast pravi nove grupe.
+    private volatile Grupe grupe;
+
+    RegistarAerodroma() {
+        this.poId = new ArrayList<>();
+        this.grupe = new Grupe(new ConcurrentHashMap<>());
+    }
+
+    public static RegistarAerodroma getInstanca() {
+        return INSTANCA;
+    }
+
+    // Metoda za registrovanje aerodroma; vraća jedinstvenu instancu za datu šifru.
+    // Aerodrom sa već registrovanom šifrom, a drugim nazivom ili gradom, se odbija,
+    // jer bi inače letovi tiho dobili pogrešan grad.
+    public Aerodrom registruj(Aerodrom aerodrom) {
+        Aerodrom postojeci = grupe.poSifri.get(aerodrom.getSifra());
+        if (postojeci != null) {
+            return proveriIsti(postojeci, aerodrom);
+        }
+
+        synchronized (this) {
+            Grupe trenutne = grupe;
+            postojeci = trenutne.poSifri.get(aerodrom.getSifra());
+            if (postojeci != null) {
+                return proveriIsti(postojeci, aerodrom);
+            }
+
+            aerodrom.setId(poId.size());
+            poId.add(aerodrom);
+            dodajUGrupe(trenutne, aerodrom);
+            trenutne.poSifri.put(aerodrom.getSifra(), aerodrom);
+            return aerodrom;
+        }
+    }
+
+    // Metoda za definisanje metropolitenske oblasti (npr. "London": London, Luton, Crawley).
+    // Pretraga za bilo koji grad iz oblasti tada obuhvata aerodrome svih gradova oblasti.
+    public synchronized void definisiMetroOblast(String naziv, String... gradovi) {
+        Map<String, String> oblastGrada = new ConcurrentHashMap<>(grupe.oblastGrada);
+        for (String grad : gradovi) {
+            oblastGrada.put(kljucGrada(grad), naziv);
+        }
+        grupe = napraviGrupe(oblastGrada);
+    }
+
+    // Metoda za pretvaranje traženog aerodroma u skup aerodroma koji mu odgovaraju:
+    // isti aerodrom, svi aerodromi istog grada i, ako je definisana, cela metro oblast
+    public SkupAerodroma razresi(Aerodrom trazeni) {
+        BitSet rezultat = new BitSet();
+        Grupe trenutne = grupe;
+
+        Aerodrom registrovani = trenutne.poSifri.get(trazeni.getSifra());
+        if (registrovani != null) {
+            rezultat.set(registrovani.getId());
+        }
+
+        String kljuc = kljucGrada(trazeni.getGrad());
+        String oblast = trenutne.oblastGrada.get(kljuc);
+        BitSet grupa = (oblast != null) ? trenutne.grupeOblasti.get(oblast) : trenutne.grupeGradova.get(kljuc);
+        if (grupa != null) {
+            rezultat.or(grupa);
+        }
+
+        return new SkupAerodroma(rezultat);
+    }
+
+    public Aerodrom nadji(String sifra) {
+        return grupe.poSifri.get(sifra);
+    }
+
+    public synchronized Aerodrom getAerodrom(int id) {
+        return poId.get(id);
+    }
+
+    public synchronized int getBrojAerodroma() {
+        return poId.size();
+    }
+
+    private static Aerodrom proveriIsti(Aerodrom registrovani, Aerodrom novi) {
+        if (registrovani != novi && (!Objects.equals(registrovani.getNaziv(), novi.getNaziv()) ||
+                !Objects.equals(registrovani.getGrad(), novi.getGrad()))) {
+            throw new IllegalArgumentException("Aerodrom " + novi.getSifra() + " je već registrovan kao " +
+                    registrovani + ", a ne kao " + novi);
+        }
+        return registrovani;
+    }
+
+    // Metoda za pravljenje grupa iz početka; objavljuju se odjednom, da razresi ne bi video
+    // delimične. Mapa oblastGrada se posle ovoga više ne menja.
+    private Grupe napraviGrupe(Map<String, String> oblastGrada) {
+        Grupe nove = new Grupe(oblastGrada);
+        for (Aerodrom aerodrom : poId) {
+            nove.poSifri.putIfAbsent(aerodrom.getSifra(), aerodrom);
+            nove.grupeGradova.computeIfAbsent(kljucGrada(aerodrom.getGrad()), grad -> new BitSet())
+                    .set(aerodrom.getId());
+        }
+        for (Map.Entry<String, String> gradIOblast : nove.oblastGrada.entrySet()) {
+            BitSet grupaGrada = nove.grupeGradova.get(gradIOblast.getKey());
+            BitSet grupa = nove.grupeOblasti.computeIfAbsent(gradIOblast.getValue(), oblast -> new BitSet());
+            if (grupaGrada != null) {
+                grupa.or(grupaGrada);
+            }
+        }
+        return nove;
+    }
+
+    private static void dodajUGrupe(Grupe grupe, Aerodrom aerodrom) {
+        String kljuc = kljucGrada(aerodrom.getGrad());
+        grupe.grupeGradova.put(kljuc, saDodatim(grupe.grupeGradova.get(kljuc), aerodrom.getId()));
+
+        String oblast = grupe.oblastGrada.get(kljuc);
+        if (oblast != null) {
+            grupe.grupeOblasti.put(oblast, saDodatim(grupe.grupeOblasti.get(oblast), aerodrom.getId()));
+        }
+    }
+
+    private static BitSet saDodatim(BitSet postojeci, int id) {
+        BitSet kopija = (postojeci != null) ? (BitSet) postojeci.clone() : new BitSet();
+        kopija.set(id);
+        return kopija;
+    }
+
+    private static String kljucGrada(String grad) {
+        return grad.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Grupe {
+        final Map<String, Aerodrom> poSifri = new ConcurrentHashMap<>();
+        final Map<String, BitSet> grupeGradova = new ConcurrentHashMap<>(); // Ključ je naziv grada malim slovima
+        final Map<String, BitSet> grupeOblasti = new ConcurrentHashMap<>(); // Ključ je naziv metropolitenske oblasti
+        final Map<String, String> oblastGrada; // Grad (malim slovima) -> naziv oblasti; ne menja se
+
+        Grupe(Map<String, String> oblastGrada) {
+            this.oblastGrada = oblastGrada;
+        }
+    }
+}
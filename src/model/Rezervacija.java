@@ -19,9 +19,17 @@ public class Rezervacija implements Serializable {
     private int brojOsoba;
     private LocalDateTime datumRezervacije;
     private LocalDateTime rokPlacanja;
-    private Status status;
+    private volatile Status status;
     private double cenaOdlaznogLeta;
     private double cenaPovratnogLeta; // 0 ako nema povratnog leta
+    private boolean cenaZakljucana; // Cena je zaključana ponudom i ne prati promene cene leta
+    private double zakljucanaUkupnaCena;
+
+    // Verzije za snimke: kada je rezervacija nastala i kada je promenila status.
+    // Status se menja najviše jednom (AKTIVNA -> PLACENA ili ISTEKLA, vidi zavrsi), pa je dovoljan prethodni status.
+    private transient long verzijaKreiranja;
+    private transient long verzijaPromeneStatusa;
+    private transient Status prethodniStatus;
 
     public Rezervacija(Let odlazniLet, Let povratniLet, int brojOsoba) {
         this.id = UUID.randomUUID().toString();
@@ -37,6 +45,17 @@ public class Rezervacija implements Serializable {
         this.cenaPovratnogLeta = (povratniLet != null) ? povratniLet.getTrenutnaCena() : 0;
     }
 
+    // Konstruktor za rezervaciju po ponudama; ukupna cena je zaključana
+    public Rezervacija(Let odlazniLet, Let povratniLet, Ponuda odlaznaPonuda, Ponuda povratnaPonuda) {
+        this(odlazniLet, povratniLet, odlaznaPonuda.getBrojMesta());
+        // Po osobi čuvamo prosečnu cenu, jer grupa može preći više cenovnih pragova
+        this.cenaOdlaznogLeta = odlaznaPonuda.getUkupnaCena() / brojOsoba;
+        this.cenaPovratnogLeta = (povratnaPonuda != null) ? povratnaPonuda.getUkupnaCena() / brojOsoba : 0;
+        this.cenaZakljucana = true;
+        this.zakljucanaUkupnaCena = odlaznaPonuda.getUkupnaCena() +
+                ((povratnaPonuda != null) ? povratnaPonuda.getUkupnaCena() : 0);
+    }
+
     // Metoda za proveru da li je rezervacija istekla
     public boolean jeIstekla() {
         return LocalDateTime.now().isAfter(rokPlacanja);
@@ -44,6 +63,9 @@ public class Rezervacija implements Serializable {
 
     // Metoda za izračunavanje trenutne ukupne cene
     public double izracunajTrenutnuCenu() {
+        if (cenaZakljucana) {
+            return zakljucanaUkupnaCena;
+        }
         double trenutnaOdlaznaCena = odlazniLet.getTrenutnaCena() * brojOsoba;
         double trenutnaPovratnaCena = (povratniLet != null) ? povratniLet.getTrenutnaCena() * brojOsoba : 0;
         return trenutnaOdlaznaCena + trenutnaPovratnaCena;
@@ -51,6 +73,9 @@ public class Rezervacija implements Serializable {
 
     // Metoda za izračunavanje cene pri rezervaciji
     public double izracunajRezervacionuCenu() {
+        if (cenaZakljucana) {
+            return zakljucanaUkupnaCena;
+        }
         double rezervacionaOdlaznaCena = cenaOdlaznogLeta * brojOsoba;
         double rezervacionaPovratnaCena = cenaPovratnogLeta * brojOsoba;
         return rezervacionaOdlaznaCena + rezervacionaPovratnaCena;
@@ -85,8 +110,41 @@ public class Rezervacija implements Serializable {
         return status;
     }
 
+    // Status se može promeniti samo aktivnoj rezervaciji (vidi zavrsi)
     public void setStatus(Status status) {
-        this.status = status;
+        Verzije.uPisanju(verzija -> zavrsi(status, verzija));
+    }
+
+    // Metoda za prelazak iz AKTIVNA u PLACENA ili ISTEKLA u okviru operacije sa datom verzijom.
+    // Vraća false ako rezervacija više nije aktivna, pa je plaćanje ili otkazivanje već obavljeno.
+    synchronized boolean zavrsi(Status noviStatus, long verzija) {
+        if (status != Status.AKTIVNA || noviStatus == Status.AKTIVNA) {
+            return false;
+        }
+        this.prethodniStatus = status;
+        this.verzijaPromeneStatusa = verzija;
+        this.status = noviStatus;
+        return true;
+    }
+
+    // Metoda za status u snimku; null ako rezervacija u snimku još nije postojala
+    public synchronized Status getStatus(Snimak snimak) {
+        if (snimak.getVerzija() < verzijaKreiranja) {
+            return null;
+        }
+        if (prethodniStatus != null && snimak.getVerzija() < verzijaPromeneStatusa) {
+            return prethodniStatus;
+        }
+        return status;
+    }
+
+    // Metoda za proveru da li je rezervacija postojala u snimku
+    public boolean postojiU(Snimak snimak) {
+        return snimak.getVerzija() >= verzijaKreiranja;
+    }
+
+    void setVerzijaKreiranja(long verzijaKreiranja) {
+        this.verzijaKreiranja = verzijaKreiranja;
     }
 
     public double getCenaOdlaznogLeta() {
@@ -97,6 +155,10 @@ public class Rezervacija implements Serializable {
         return cenaPovratnogLeta;
     }
 
+    public boolean isCenaZakljucana() {
+        return cenaZakljucana;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -0,0 +1,26 @@
+package model;
+
+import java.util.BitSet;
+
+// Nepromenljiv skup aerodroma po njihovim ID-evima iz registra.
+// Pretraga ga pravi jednom, pa za svaki let proverava samo jedan bit.
+public class SkupAerodroma {
+
+    private final BitSet idevi;
+
+    SkupAerodroma(BitSet idevi) {
+        this.idevi = idevi;
+    }
+
+    public boolean sadrzi(int idAerodroma) {
+        return idAerodroma >= 0 && idevi.get(idAerodroma);
+    }
+
+    public boolean sadrzi(Aerodrom aerodrom) {
+        return sadrzi(aerodrom.getId());
+    }
+
+    public int getBrojAerodroma() {
+        return idevi.cardinality();
+    }
+}
@@ -0,0 +1,32 @@
+package model;
+
+// Konzistentan pogled na stanje letova, rezervacija i prihoda u jednom trenutku.
+// Pravljenje snimka ne kopira podatke i ne zaustavlja rezervacije; vrednosti se
+// čitaju preko metoda koje primaju snimak (npr. Let.getPreostaliBrojMesta(Snimak)).
+// Snimak treba zatvoriti kada izveštaj završi, da bi se stare izmene mogle spojiti.
+public class Snimak implements AutoCloseable {
+
+    private final long verzija;
+    private boolean zatvoren;
+
+    private Snimak(long verzija) {
+        this.verzija = verzija;
+    }
+
+    // Metoda za pravljenje snimka trenutnog stanja
+    public static Snimak napravi() {
+        return new Snimak(Verzije.otvoriSnimak());
+    }
+
+    public long getVerzija() {
+        return verzija;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!zatvoren) {
+            zatvoren = true;
+            Verzije.zatvoriSnimak(verzija);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package model;
+
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+// Spliterator koji redom prolazi kroz više izvora (npr. letove svih avio kompanija agenta).
+// Deli se prvo po izvorima, a kada ostane jedan izvor, deli se sam taj izvor, pa
+// paralelni stream može da radi i kada agent ima samo jednu veliku avio kompaniju.
+class SpojeniSpliterator<T> implements Spliterator<T> {
+
+    private final List<Spliterator<T>> delovi;
+    private int od;
+    private final int doIndeksa;
+
+    SpojeniSpliterator(List<Spliterator<T>> delovi) {
+        this(delovi, 0, delovi.size());
+    }
+
+    private SpojeniSpliterator(List<Spliterator<T>> delovi, int od, int doIndeksa) {
+        this.delovi = delovi;
+        this.od = od;
+        this.doIndeksa = doIndeksa;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> akcija) {
+        while (od < doIndeksa) {
+            if (delovi.get(od).tryAdvance(akcija)) {
+                return true;
+            }
+            od++;
+        }
+        return false;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> akcija) {
+        while (od < doIndeksa) {
+            delovi.get(od++).forEachRemaining(akcija);
+        }
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        int preostalo = doIndeksa - od;
+        if (preostalo > 1) {
+            int sredina = od + preostalo / 2;
+            Spliterator<T> prvaPolovina = new SpojeniSpliterator<>(delovi, od, sredina);
+            od = sredina;
+            return prvaPolovina;
+        }
+        if (preostalo == 1) {
+            return delovi.get(od).trySplit();
+        }
+        return null;
+    }
+
+    @Override
+    public long estimateSize() {
+        long ukupno = 0;
+        for (int i = od; i < doIndeksa; i++) {
+            ukupno += delovi.get(i).estimateSize();
+            if (ukupno < 0) {
+                return Long.MAX_VALUE;
+            }
+        }
+        return ukupno;
+    }
+
+    @Override
+    public int characteristics() {
+        // Izvori su ConcurrentHashMap pogledi: slabo konzistentni, bez null elemenata
+        return CONCURRENT | NONNULL;
+    }
+}
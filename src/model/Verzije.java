@@ -0,0 +1,159 @@
+package model;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+// Zajednički logički sat za verzionisanje izmena nad letovima, rezervacijama i prihodima.
+// Svaka operacija pisanja dobija jednu verziju i sve njene izmene nose tu verziju.
+// Snimak u verziji V vidi tačno one operacije sa verzijom <= V, a sve su one završene.
+//
+// Operacija dobija verziju tek kada zaključa sve letove koje menja, pa verzije na svakom
+// letu idu redom kojim izmene stupaju na snagu: operacija ne može da zauzme mesta koja je
+// oslobodila operacija sa većom verzijom. Pisanje ne prolazi kroz zajednički lock; nit
+// samo objavi svoju verziju u sopstvenom mestu, a snimak (koji je redak) pregleda sva mesta.
+final class Verzije {
+
+    private static final AtomicLong sat = new AtomicLong();
+
+    // Najveća verzija za koju je poznato da su sve operacije do nje završene; samo raste
+    private static final AtomicLong vidljiva = new AtomicLong();
+
+    // Mesta niti koje su pisale; mesto umrle niti se uklanja pri pregledu
+    private static final Queue<MestoPisanja> mesta = new ConcurrentLinkedQueue<>();
+    private static final ThreadLocal<MestoPisanja> mestoNiti = ThreadLocal.withInitial(() -> {
+        MestoPisanja mesto = new MestoPisanja(Thread.currentThread());
+        mesta.add(mesto);
+        return mesto;
+    });
+
+    // Verzije otvorenih snimaka i koliko je snimaka otvoreno u svakoj
+    private static final ConcurrentSkipListMap<Long, Integer> otvoreniSnimci = new ConcurrentSkipListMap<>();
+
+    // Broj zatvorenih snimaka; kada se promeni, spajanje izmena ponovo ima smisla
+    private static final AtomicLong zatvorenihSnimaka = new AtomicLong();
+
+    // Letovi se zaključavaju uvek istim redom, da dve operacije ne bi čekale jedna na drugu
+    private static final Comparator<Let> REDOSLED_ZAKLJUCAVANJA = Comparator
+            .comparing(Let::getAvioKompanija, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(Let::getSifra, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparingInt(System::identityHashCode);
+
+    private Verzije() {
+    }
+
+    // Metoda za izvršavanje operacije pisanja pod novom verzijom. Navode se svi letovi čija se
+    // mesta menjaju (null se preskače); oni ostaju zaključani dok se operacija ne završi.
+    static <T> T uPisanju(LongFunction<T> operacija, Let... letovi) {
+        Let[] zakljucani = urediZaZakljucavanje(letovi);
+        for (Let let : zakljucani) {
+            let.zakljucajZaPisanje();
+        }
+        try {
+            MestoPisanja mesto = mestoNiti.get();
+            long verzija = mesto.zapocni();
+            try {
+                return operacija.apply(verzija);
+            } finally {
+                mesto.zavrsi();
+            }
+        } finally {
+            for (int i = zakljucani.length - 1; i >= 0; i--) {
+                zakljucani[i].otkljucajZaPisanje();
+            }
+        }
+    }
+
+    private static Let[] urediZaZakljucavanje(Let[] letovi) {
+        Let[] uredjeni = Arrays.stream(letovi)
+                .filter(let -> let != null)
+                .distinct()
+                .toArray(Let[]::new);
+        if (uredjeni.length > 1) {
+            Arrays.sort(uredjeni, REDOSLED_ZAKLJUCAVANJA);
+        }
+        return uredjeni;
+    }
+
+    // Metoda za pomeranje vidljive verzije do najveće verzije pre svih operacija u toku
+    private static long osveziVidljivu() {
+        long poslednja = sat.get();
+        long najmanjaUToku = Long.MAX_VALUE;
+
+        Iterator<MestoPisanja> iterator = mesta.iterator();
+        while (iterator.hasNext()) {
+            MestoPisanja mesto = iterator.next();
+            long granica = mesto.donjaGranica;
+            Thread nit = mesto.nit.get();
+            if (granica != 0) {
+                najmanjaUToku = Math.min(najmanjaUToku, granica);
+            } else if (nit == null || !nit.isAlive()) {
+                iterator.remove();
+            }
+        }
+
+        long kandidat = Math.min(poslednja, najmanjaUToku - 1);
+        return vidljiva.accumulateAndGet(kandidat, Math::max);
+    }
+
+    // Snimak prvo rezerviše staru vidljivu verziju, da spajanje izmena koje se dešava u
+    // međuvremenu ne bi spojilo izmene koje novi snimak još razlikuje
+    static long otvoriSnimak() {
+        long rezervisana = vidljiva.get();
+        otvoreniSnimci.merge(rezervisana, 1, Integer::sum);
+        long verzija = osveziVidljivu();
+        otvoreniSnimci.merge(verzija, 1, Integer::sum);
+        zatvoriSnimak(rezervisana);
+        return verzija;
+    }
+
+    static void zatvoriSnimak(long verzija) {
+        otvoreniSnimci.computeIfPresent(verzija, (v, broj) -> broj > 1 ? broj - 1 : null);
+        zatvorenihSnimaka.incrementAndGet();
+    }
+
+    static long brojZatvorenihSnimaka() {
+        return zatvorenihSnimaka.get();
+    }
+
+    // Izmene sa verzijom <= ove vrednosti više nijedan snimak ne mora da razlikuje,
+    // pa se mogu spojiti u osnovnu vrednost
+    static long najstarijaPotrebnaVerzija() {
+        long vidljivaVerzija = osveziVidljivu();
+        Map.Entry<Long, Integer> najstariji = otvoreniSnimci.firstEntry();
+        return (najstariji != null) ? Math.min(najstariji.getKey(), vidljivaVerzija) : vidljivaVerzija;
+    }
+
+    // Verzija operacije koju nit trenutno izvršava. Nit prvo objavi donju granicu svoje verzije,
+    // pa tek onda uzme verziju sa sata, tako da je snimak koji vidi tu verziju na satu sigurno
+    // vidi i kao operaciju u toku. Ugnežđene operacije zadržavaju granicu spoljne.
+    private static final class MestoPisanja {
+        private final WeakReference<Thread> nit;
+        private volatile long donjaGranica; // 0 kada nit ne piše
+        private int dubina;
+
+        MestoPisanja(Thread nit) {
+            this.nit = new WeakReference<>(nit);
+        }
+
+        long zapocni() {
+            if (dubina++ == 0) {
+                donjaGranica = sat.get() + 1;
+            }
+            return sat.incrementAndGet();
+        }
+
+        void zavrsi() {
+            if (--dubina == 0) {
+                donjaGranica = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Zbir (npr. dnevni prihod ili broj zauzetih mesta) koji pamti svoje izmene po verzijama,
+// pa se može pročitati i vrednost u nekom ranijem snimku. Izmene koje nijedan otvoreni
+// snimak ne razlikuje spajaju se u osnovnu vrednost, tako da lista ostaje kratka.
+class VerzionisaniZbir implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // Spajanje traži globalni sat, pa se radi tek kada se nakupi nekoliko izmena
+    private static final int PRAG_SPAJANJA = 8;
+
+    private double osnova;
+    private double ukupno;
+    private transient List<Promena> promene;
+
+    // Broj izmena pri kome se spajanje pokušava sledeći put. Dok je otvoren stari snimak
+    // spajanje ne uklanja ništa, pa se prag duplira da dodavanje ne bi svaki put
+    // pregledalo sva mesta pisanja i celu listu. Kada se neki snimak zatvori, spajanje
+    // se pokušava odmah.
+    private transient int prag;
+    private transient long zatvorenihSnimaka;
+
+    VerzionisaniZbir(double pocetnaVrednost) {
+        this.osnova = pocetnaVrednost;
+        this.ukupno = pocetnaVrednost;
+        this.promene = new ArrayList<>();
+        this.prag = PRAG_SPAJANJA;
+    }
+
+    // Metoda za dodavanje iznosa u okviru operacije sa datom verzijom
+    synchronized void dodaj(long verzija, double iznos) {
+        ukupno += iznos;
+        promene.add(new Promena(verzija, iznos));
+        if (promene.size() >= prag ||
+                (promene.size() >= PRAG_SPAJANJA && zatvorenihSnimaka != Verzije.brojZatvorenihSnimaka())) {
+            zatvorenihSnimaka = Verzije.brojZatvorenihSnimaka();
+            spojiStarePromene(Verzije.najstarijaPotrebnaVerzija());
+            prag = Math.max(PRAG_SPAJANJA, 2 * promene.size());
+        }
+    }
+
+    // Trenutna vrednost, sa svim izmenama
+    synchronized double getUkupno() {
+        return ukupno;
+    }
+
+    // Vrednost u snimku sa datom verzijom
+    synchronized double uVerziji(long verzija) {
+        double vrednost = osnova;
+        for (Promena promena : promene) {
+            if (promena.verzija <= verzija) {
+                vrednost += promena.iznos;
+            }
+        }
+        return vrednost;
+    }
+
+    private void spojiStarePromene(long najstarijaPotrebna) {
+        promene.removeIf(promena -> {
+            if (promena.verzija <= najstarijaPotrebna) {
+                osnova += promena.iznos;
+                return true;
+            }
+            return false;
+        });
+    }
+
+    // Metoda za serijalizaciju; verzije važe samo u procesu koji ih je napravio
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        osnova = ukupno;
+        promene = new ArrayList<>();
+        prag = PRAG_SPAJANJA;
+    }
+
+    // Metoda za prevođenje mape prihoda sačuvane pre verzionisanja, u kojoj su vrednosti
+    // bile Double, u mapu zbirova; mapa koja već sadrži zbirove se ne menja
+    static <K> void prevediStareVrednosti(Map<K, VerzionisaniZbir> zbirovi) {
+        for (Map.Entry<K, ?> unos : zbirovi.entrySet()) {
+            Object vrednost = unos.getValue();
+            if (vrednost instanceof Double) {
+                zbirovi.put(unos.getKey(), new VerzionisaniZbir((Double) vrednost));
+            }
+        }
+    }
+
+    private static class Promena {
+        private final long verzija;
+        private final double iznos;
+
+        Promena(long verzija, double iznos) {
+            this.verzija = verzija;
+            this.iznos = iznos;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package rpc;
+
+import java.io.DataInput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+import model.Let;
+
+// Podaci o letu koji se vraćaju klijentu preko mreze (bez živih referenci na model.Let)
+public class OpisLeta {
+
+    private final String sifra;
+    private final String polazniAerodrom;
+    private final String dolazniAerodrom;
+    private final LocalDateTime vremePolaska;
+    private final String avioKompanija;
+    private final double trenutnaCena;
+    private final int preostaliBrojMesta;
+    private final int ukupanBrojMesta;
+
+    public OpisLeta(String sifra, String polazniAerodrom, String dolazniAerodrom,
+                    LocalDateTime vremePolaska, String avioKompanija, double trenutnaCena,
+                    int preostaliBrojMesta, int ukupanBrojMesta) {
+        this.sifra = sifra;
+        this.polazniAerodrom = polazniAerodrom;
+        this.dolazniAerodrom = dolazniAerodrom;
+        this.vremePolaska = vremePolaska;
+        this.avioKompanija = avioKompanija;
+        this.trenutnaCena = trenutnaCena;
+        this.preostaliBrojMesta = preostaliBrojMesta;
+        this.ukupanBrojMesta = ukupanBrojMesta;
+    }
+
+    // Metoda za upis leta u telo odgovora
+    static void upisi(DataOutputStream izlaz, Let let) throws IOException {
+        izlaz.writeUTF(let.getSifra());
+        izlaz.writeUTF(let.getPolazniAerodrom().getSifra());
+        izlaz.writeUTF(let.getDolazniAerodrom().getSifra());
+        Protokol.upisiVreme(izlaz, let.getVremePolaska());
+        izlaz.writeUTF(let.getAvioKompanija());
+        izlaz.writeDouble(let.getTrenutnaCena());
+        izlaz.writeInt(let.getPreostaliBrojMesta());
+        izlaz.writeInt(let.getUkupanBrojMesta());
+    }
+
+    // Metoda za čitanje leta iz tela odgovora
+    static OpisLeta procitaj(DataInput ulaz) throws IOException {
+        return new OpisLeta(ulaz.readUTF(), ulaz.readUTF(), ulaz.readUTF(),
+                Protokol.procitajVreme(ulaz), ulaz.readUTF(), ulaz.readDouble(),
+                ulaz.readInt(), ulaz.readInt());
+    }
+
+    // Getteri
+    public String getSifra() {
+        return sifra;
+    }
+
+    public String getPolazniAerodrom() {
+        return polazniAerodrom;
+    }
+
+    public String getDolazniAerodrom() {
+        return dolazniAerodrom;
+    }
+
+    public LocalDateTime getVremePolaska() {
+        return vremePolaska;
+    }
+
+    public String getAvioKompanija() {
+        return avioKompanija;
+    }
+
+    public double getTrenutnaCena() {
+        return trenutnaCena;
+    }
+
+    public int getPreostaliBrojMesta() {
+        return preostaliBrojMesta;
+    }
+
+    public int getUkupanBrojMesta() {
+        return ukupanBrojMesta;
+    }
+
+    @Override
+    public String toString() {
+        return sifra + ": " + polazniAerodrom + " -> " + dolazniAerodrom + ", " +
+                avioKompanija + ", " + vremePolaska + ", Cena: " + trenutnaCena +
+                " (" + preostaliBrojMesta + "/" + ukupanBrojMesta + " mesta)";
+    }
+}
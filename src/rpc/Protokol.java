@@ -0,0 +1,170 @@
+package rpc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/*
+ * Binarni protokol između RpcKlijent-a i RpcServer-a.
+ *
+ * Svaki okvir (zahtev i odgovor) ima isti oblik:
+ *   int  dužina      - broj bajtova koji slede iza ovog polja
+ *   long idZahteva   - klijent ga bira, server ga vraća u odgovoru
+ *   byte kod         - kod operacije (zahtev) ili status (odgovor)
+ *   ...              - telo okvira
+ *
+ * Pošto svaki odgovor nosi idZahteva, klijent može da pošalje više zahteva
+ * jedan za drugim preko iste veze, a server može da vrati odgovore redom
+ * kojim su obrađeni, a ne redom kojim su stigli.
+ *
+ * Zahtevi za rezervaciju i plaćanje nose opcioni ključ idempotentnosti, pa
+ * klijent može bezbedno da ponovi zahtev kada mu istekne vreme čekanja.
+ */
+public final class Protokol {
+
+    // Maksimalna dužina okvira, zaštita od neispravnih ili zlonamernih klijenata
+    public static final int MAKSIMALNA_DUZINA_OKVIRA = 1 << 20;
+
+    // Dužina zaglavlja iza polja dužine (idZahteva + kod)
+    static final int DUZINA_ZAGLAVLJA = Long.BYTES + 1;
+
+    // Operacije agenta
+    public static final byte AGENT_NADJI_LETOVE = 1;
+    public static final byte AGENT_REZERVISI_LET = 2;
+    public static final byte AGENT_PLATI_REZERVACIJU = 3;
+    public static final byte AGENT_OTKAZI_REZERVACIJU = 4;
+    public static final byte AGENT_DNEVNI_PRIHOD = 5;
+
+    // Operacije avio kompanije
+    public static final byte AK_NADJI_LETOVE = 11;
+    public static final byte AK_REZERVISI_LET = 12;
+    public static final byte AK_PLATI_REZERVACIJU = 13;
+    public static final byte AK_OTKAZI_REZERVACIJU = 14;
+    public static final byte AK_DNEVNI_PRIHOD = 15;
+
+    // Statusi odgovora
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_GRESKA = 1;
+
+    private Protokol() {
+    }
+
+    // Metoda za pravljenje okvira od zaglavlja i već serijalizovanog tela. Okvir duži od
+    // MAKSIMALNA_DUZINA_OKVIRA se ne pravi, jer bi druga strana zbog njega prekinula vezu.
+    static ByteBuffer napraviOkvir(long idZahteva, byte kod, byte[] telo) throws IOException {
+        if (DUZINA_ZAGLAVLJA + telo.length > MAKSIMALNA_DUZINA_OKVIRA) {
+            throw new IOException("Okvir je predugačak: " + (DUZINA_ZAGLAVLJA + telo.length) +
+                    " bajtova, najviše " + MAKSIMALNA_DUZINA_OKVIRA);
+        }
+        return okvir(idZahteva, kod, telo);
+    }
+
+    // Metoda za okvir bez tela, npr. odgovor sa greškom čija poruka ne može da se pošalje
+    static ByteBuffer napraviPrazanOkvir(long idZahteva, byte kod) {
+        return okvir(idZahteva, kod, new byte[0]);
+    }
+
+    private static ByteBuffer okvir(long idZahteva, byte kod, byte[] telo) {
+        ByteBuffer okvir = ByteBuffer.allocate(Integer.BYTES + DUZINA_ZAGLAVLJA + telo.length);
+        okvir.putInt(DUZINA_ZAGLAVLJA + telo.length);
+        okvir.putLong(idZahteva);
+        okvir.put(kod);
+        okvir.put(telo);
+        okvir.flip();
+        return okvir;
+    }
+
+    // Metoda za izdvajanje svih kompletnih okvira iz ulaznog bafera.
+    // Bafer mora biti u režimu čitanja; nekompletan ostatak ostaje u baferu.
+    static void izdvojiOkvire(ByteBuffer ulaz, PrimalacOkvira primalac) throws IOException {
+        izdvojiOkvire(ulaz, Integer.MAX_VALUE, primalac);
+    }
+
+    // Isto, ali izdvaja najviše maksimalnoOkvira okvira; ostali ostaju u baferu
+    static void izdvojiOkvire(ByteBuffer ulaz, int maksimalnoOkvira, PrimalacOkvira primalac) throws IOException {
+        int izdvojeno = 0;
+        while (izdvojeno < maksimalnoOkvira && ulaz.remaining() >= Integer.BYTES) {
+            int duzina = ulaz.getInt(ulaz.position());
+            if (duzina < DUZINA_ZAGLAVLJA || duzina > MAKSIMALNA_DUZINA_OKVIRA) {
+                throw new IOException("Neispravna dužina okvira: " + duzina);
+            }
+            if (ulaz.remaining() < Integer.BYTES + duzina) {
+                return;
+            }
+
+            ulaz.getInt();
+            long idZahteva = ulaz.getLong();
+            byte kod = ulaz.get();
+            byte[] telo = new byte[duzina - DUZINA_ZAGLAVLJA];
+            ulaz.get(telo);
+            primalac.primi(idZahteva, kod, telo);
+            izdvojeno++;
+        }
+    }
+
+    // Metoda za povećanje ulaznog bafera kada okvir ne staje u njega
+    static ByteBuffer obezbediProstor(ByteBuffer ulaz) {
+        if (ulaz.hasRemaining()) {
+            return ulaz;
+        }
+        int novaVelicina = Math.min(ulaz.capacity() * 2, Integer.BYTES + MAKSIMALNA_DUZINA_OKVIRA);
+        ByteBuffer veci = ByteBuffer.allocate(novaVelicina);
+        ulaz.flip();
+        veci.put(ulaz);
+        return veci;
+    }
+
+    // Pomoćne metode za tipove koji se prenose u telu okvira
+
+    static void upisiString(DataOutputStream izlaz, String vrednost) throws IOException {
+        izlaz.writeBoolean(vrednost != null);
+        if (vrednost != null) {
+            izlaz.writeUTF(vrednost);
+        }
+    }
+
+    static String procitajString(DataInput ulaz) throws IOException {
+        return ulaz.readBoolean() ? ulaz.readUTF() : null;
+    }
+
+    static void upisiDatum(DataOutputStream izlaz, LocalDate datum) throws IOException {
+        izlaz.writeLong(datum.toEpochDay());
+    }
+
+    static LocalDate procitajDatum(DataInput ulaz) throws IOException {
+        return LocalDate.ofEpochDay(ulaz.readLong());
+    }
+
+    static void upisiVreme(DataOutputStream izlaz, LocalDateTime vreme) throws IOException {
+        izlaz.writeLong(vreme.toEpochSecond(ZoneOffset.UTC));
+        izlaz.writeInt(vreme.getNano());
+    }
+
+    static LocalDateTime procitajVreme(DataInput ulaz) throws IOException {
+        long sekunde = ulaz.readLong();
+        int nano = ulaz.readInt();
+        return LocalDateTime.ofEpochSecond(sekunde, nano, ZoneOffset.UTC);
+    }
+
+    // Telo okvira se pravi u memoriji pa se zatim šalje u jednom komadu
+    interface PisacTela {
+        void upisi(DataOutputStream izlaz) throws IOException;
+    }
+
+    interface PrimalacOkvira {
+        void primi(long idZahteva, byte kod, byte[] telo) throws IOException;
+    }
+
+    static byte[] napraviTelo(PisacTela pisac) throws IOException {
+        ByteArrayOutputStream bajtovi = new ByteArrayOutputStream(64);
+        DataOutputStream izlaz = new DataOutputStream(bajtovi);
+        pisac.upisi(izlaz);
+        izlaz.flush();
+        return bajtovi.toByteArray();
+    }
+}
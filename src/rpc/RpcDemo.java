@@ -0,0 +1,132 @@
+package rpc;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import model.Aerodrom;
+import model.Agent;
+import model.AvioKompanija;
+import model.Let;
+
+/*
+ * Primer rada RpcServer-a i RpcKlijent-a preko loopback veze:
+ *   1. mnogo zahteva istovremeno na čekanju preko jedne veze (pipelining),
+ *   2. greška u obradi jednog zahteva (nepoznat agent),
+ *   3. odgovor duži od Protokol.MAKSIMALNA_DUZINA_OKVIRA,
+ *   4. neispravan broj osoba u zahtevu za rezervaciju.
+ * Posle svake greške ista veza mora i dalje da radi. Ako nešto ne odgovara
+ * očekivanom, program se završava izuzetkom.
+ */
+public class RpcDemo {
+
+    private static final int BROJ_ZAHTEVA = 500;
+    private static final int BROJ_LETOVA_ZA_VELIKU_PRETRAGU = 25_000;
+
+    public static void main(String[] args) throws IOException {
+        Aerodrom beograd = new Aerodrom("BEG", "Nikola Tesla", "Beograd");
+        Aerodrom bec = new Aerodrom("VIE", "Schwechat", "Beč");
+        Aerodrom pariz = new Aerodrom("CDG", "Charles de Gaulle", "Pariz");
+        LocalDateTime polazak = LocalDateTime.now().plusDays(7);
+
+        AvioKompanija avioKompanija = new AvioKompanija("AirSerbia", 0.05);
+        avioKompanija.dodajLet(new Let("JU100", beograd, bec, polazak, "AirSerbia",
+                2 * BROJ_ZAHTEVA, 100, 300, 50, 10));
+        for (int i = 0; i < BROJ_LETOVA_ZA_VELIKU_PRETRAGU; i++) {
+            avioKompanija.dodajLet(new Let("JU-P" + i, beograd, pariz, polazak, "AirSerbia",
+                    100, 150, 400, 10, 5));
+        }
+
+        Agent agent = new Agent("Putnik", 0.1);
+        agent.dodajAvioKompaniju(avioKompanija);
+
+        try (RpcServer server = new RpcServer(0, 4)) {
+            server.registrujAgenta(agent);
+            server.registrujAvioKompaniju(avioKompanija);
+            server.pokreni();
+
+            try (RpcKlijent klijent = new RpcKlijent("localhost", server.getPort())) {
+                proveriPipelining(klijent, avioKompanija.getLet("JU100"));
+                proveriGreskuObrade(klijent);
+                proveriPrevelikOdgovor(klijent, beograd, pariz, polazak.toLocalDate());
+                proveriNeispravanBrojOsoba(klijent, avioKompanija.getLet("JU100"));
+            }
+        } finally {
+            agent.shutdown();
+        }
+
+        System.out.println("RPC demo: sve provere su prošle");
+    }
+
+    // Svi zahtevi se šalju pre nego što se sačeka ijedan odgovor
+    private static void proveriPipelining(RpcKlijent klijent, Let let) {
+        List<CompletableFuture<String>> odgovori = new ArrayList<>();
+        for (int i = 0; i < BROJ_ZAHTEVA; i++) {
+            odgovori.add(klijent.agentRezervisiLet("Putnik", "JU100", null, 1));
+        }
+
+        Set<String> idRezervacija = new HashSet<>();
+        for (CompletableFuture<String> odgovor : odgovori) {
+            String idRezervacije = odgovor.join();
+            if (idRezervacije == null) {
+                throw new IllegalStateException("Rezervacija nije uspela iako ima mesta");
+            }
+            idRezervacija.add(idRezervacije);
+        }
+
+        if (idRezervacija.size() != BROJ_ZAHTEVA || let.getPreostaliBrojMesta() != BROJ_ZAHTEVA) {
+            throw new IllegalStateException("Očekivano " + BROJ_ZAHTEVA + " različitih rezervacija, dobijeno " +
+                    idRezervacija.size() + ", preostalo mesta " + let.getPreostaliBrojMesta());
+        }
+        System.out.println("Pipelining: " + BROJ_ZAHTEVA + " rezervacija preko jedne veze");
+    }
+
+    // Greška jednog zahteva stiže kao STATUS_GRESKA i ne prekida vezu
+    private static void proveriGreskuObrade(RpcKlijent klijent) {
+        String poruka = ocekujGresku(klijent.agentDnevniPrihod("Nepostojeci", LocalDate.now()));
+        System.out.println("Greška obrade: " + poruka);
+        proveriDaVezaRadi(klijent);
+    }
+
+    // Server umesto prevelikog odgovora šalje grešku samo za taj zahtev
+    private static void proveriPrevelikOdgovor(RpcKlijent klijent, Aerodrom polazni, Aerodrom dolazni,
+                                               LocalDate datum) {
+        String poruka = ocekujGresku(klijent.agentNadjiLetove("Putnik", polazni, dolazni, datum));
+        System.out.println("Prevelik odgovor: " + poruka);
+        proveriDaVezaRadi(klijent);
+    }
+
+    // Rezervacija za nula ili negativan broj osoba se odbija i ne menja broj mesta
+    private static void proveriNeispravanBrojOsoba(RpcKlijent klijent, Let let) {
+        int preostalo = let.getPreostaliBrojMesta();
+        String poruka = ocekujGresku(klijent.avioKompanijaRezervisiLet("AirSerbia", "JU100", null, -3, false));
+        ocekujGresku(klijent.agentRezervisiLet("Putnik", "JU100", null, 0));
+        if (let.getPreostaliBrojMesta() != preostalo) {
+            throw new IllegalStateException("Neispravan broj osoba je promenio broj mesta");
+        }
+        System.out.println("Neispravan broj osoba: " + poruka);
+        proveriDaVezaRadi(klijent);
+    }
+
+    private static String ocekujGresku(CompletableFuture<?> odgovor) {
+        try {
+            odgovor.join();
+        } catch (CompletionException e) {
+            return e.getCause().getMessage();
+        }
+        throw new IllegalStateException("Očekivana je greška, a zahtev je uspeo");
+    }
+
+    private static void proveriDaVezaRadi(RpcKlijent klijent) {
+        double prihod = klijent.agentDnevniPrihod("Putnik", LocalDate.now()).join();
+        if (prihod != 0) {
+            throw new IllegalStateException("Neočekivan dnevni prihod: " + prihod);
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package rpc;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import model.Aerodrom;
+
+/*
+ * Neblokirajući RPC klijent. Sve metode odmah vraćaju CompletableFuture;
+ * više zahteva može istovremeno čekati na odgovor preko iste veze, a
+ * odgovori se uparuju sa zahtevima po idZahteva.
+ *
+ * Future-i se završavaju na niti klijenta, pa zavisne akcije (thenApply...)
+ * ne bi trebalo da blokiraju.
+ */
+public class RpcKlijent implements Closeable {
+
+    private static final int POCETNA_VELICINA_BAFERA = 16 * 1024;
+
+    private final SocketChannel kanal;
+    private final Selector selektor;
+    private final SelectionKey kljuc;
+    private final Thread nit;
+
+    private final AtomicLong sledeciIdZahteva;
+    private final Map<Long, CompletableFuture<DataInputStream>> naCekanju;
+    private final Queue<ByteBuffer> zaSlanje;
+
+    private ByteBuffer ulaz;
+    private volatile boolean radi;
+
+    public RpcKlijent(String host, int port) throws IOException {
+        this.sledeciIdZahteva = new AtomicLong();
+        this.naCekanju = new ConcurrentHashMap<>();
+        this.zaSlanje = new ConcurrentLinkedQueue<>();
+        this.ulaz = ByteBuffer.allocate(POCETNA_VELICINA_BAFERA);
+
+        this.kanal = SocketChannel.open(new InetSocketAddress(host, port));
+        this.kanal.socket().setTcpNoDelay(true);
+        this.kanal.configureBlocking(false);
+        this.selektor = Selector.open();
+        this.kljuc = kanal.register(selektor, SelectionKey.OP_READ);
+
+        this.radi = true;
+        this.nit = new Thread(this::petlja, "rpc-klijent-" + port);
+        this.nit.setDaemon(true);
+        this.nit.start();
+    }
+
+    // Operacije agenta
+
+    public CompletableFuture<List<OpisLeta>> agentNadjiLetove(String agent, Aerodrom polazniAerodrom,
+                                                             Aerodrom dolazniAerodrom, LocalDate datum) {
+        return posalji(Protokol.AGENT_NADJI_LETOVE, izlaz -> {
+            izlaz.writeUTF(agent);
+            upisiAerodrom(izlaz, polazniAerodrom);
+            upisiAerodrom(izlaz, dolazniAerodrom);
+            Protokol.upisiDatum(izlaz, datum);
+        }).thenApply(RpcKlijent::procitajLetove);
+    }
+
+    // Vraća ID rezervacije, ili null ako rezervacija nije uspela
+    public CompletableFuture<String> agentRezervisiLet(String agent, String sifraLeta,
+                                                       String sifraPovratnogLeta, int brojOsoba) {
+        return agentRezervisiLet(agent, null, sifraLeta, sifraPovratnogLeta, brojOsoba);
+    }
+
+    // Ponovljen zahtev sa istim ključem idempotentnosti vraća istu rezervaciju
+    public CompletableFuture<String> agentRezervisiLet(String agent, String kljucIdempotentnosti, String sifraLeta,
+                                                       String sifraPovratnogLeta, int brojOsoba) {
+        return posalji(Protokol.AGENT_REZERVISI_LET, izlaz -> {
+            izlaz.writeUTF(agent);
+            Protokol.upisiString(izlaz, kljucIdempotentnosti);
+            izlaz.writeUTF(sifraLeta);
+            Protokol.upisiString(izlaz, sifraPovratnogLeta);
+            izlaz.writeInt(brojOsoba);
+        }).thenApply(RpcKlijent::procitajString);
+    }
+
+    public CompletableFuture<Double> agentPlatiRezervaciju(String agent, String idRezervacije) {
+        return agentPlatiRezervaciju(agent, null, idRezervacije);
+    }
+
+    // Ponovljen zahtev sa istim ključem idempotentnosti vraća isti iznos
+    public CompletableFuture<Double> agentPlatiRezervaciju(String agent, String kljucIdempotentnosti,
+                                                           String idRezervacije) {
+        return posalji(Protokol.AGENT_PLATI_REZERVACIJU, izlaz -> {
+            izlaz.writeUTF(agent);
+            Protokol.upisiString(izlaz, kljucIdempotentnosti);
+            izlaz.writeUTF(idRezervacije);
+        }).thenApply(RpcKlijent::procitajDouble);
+    }
+
+    public CompletableFuture<Boolean> agentOtkaziRezervaciju(String agent, String idRezervacije) {
+        return posalji(Protokol.AGENT_OTKAZI_REZERVACIJU, izlaz -> {
+            izlaz.writeUTF(agent);
+            izlaz.writeUTF(idRezervacije);
+        }).thenApply(RpcKlijent::procitajBoolean);
+    }
+
+    public CompletableFuture<Double> agentDnevniPrihod(String agent, LocalDate datum) {
+        return posalji(Protokol.AGENT_DNEVNI_PRIHOD, izlaz -> {
+            izlaz.writeUTF(agent);
+            Protokol.upisiDatum(izlaz, datum);
+        }).thenApply(RpcKlijent::procitajDouble);
+    }
+
+    // Operacije avio kompanije
+
+    public CompletableFuture<List<OpisLeta>> avioKompanijaNadjiLetove(String avioKompanija, Aerodrom polazniAerodrom,
+                                                                     Aerodrom dolazniAerodrom, LocalDate datum) {
+        return posalji(Protokol.AK_NADJI_LETOVE, izlaz -> {
+            izlaz.writeUTF(avioKompanija);
+            upisiAerodrom(izlaz, polazniAerodrom);
+            upisiAerodrom(izlaz, dolazniAerodrom);
+            Protokol.upisiDatum(izlaz, datum);
+        }).thenApply(RpcKlijent::procitajLetove);
+    }
+
+    // Vraća ID rezervacije, ili null ako rezervacija nije uspela
+    public CompletableFuture<String> avioKompanijaRezervisiLet(String avioKompanija, String sifraLeta,
+                                                               String sifraPovratnogLeta, int brojOsoba,
+                                                               boolean zaAgenta) {
+        return avioKompanijaRezervisiLet(avioKompanija, null, sifraLeta, sifraPovratnogLeta, brojOsoba, zaAgenta);
+    }
+
+    // Ponovljen zahtev sa istim ključem idempotentnosti vraća istu rezervaciju
+    public CompletableFuture<String> avioKompanijaRezervisiLet(String avioKompanija, String kljucIdempotentnosti,
+                                                               String sifraLeta, String sifraPovratnogLeta,
+                                                               int brojOsoba, boolean zaAgenta) {
+        return posalji(Protokol.AK_REZERVISI_LET, izlaz -> {
+            izlaz.writeUTF(avioKompanija);
+            Protokol.upisiString(izlaz, kljucIdempotentnosti);
+            izlaz.writeUTF(sifraLeta);
+            Protokol.upisiString(izlaz, sifraPovratnogLeta);
+            izlaz.writeInt(brojOsoba);
+            izlaz.writeBoolean(zaAgenta);
+        }).thenApply(RpcKlijent::procitajString);
+    }
+
+    public CompletableFuture<Double> avioKompanijaPlatiRezervaciju(String avioKompanija, String idRezervacije,
+                                                                   boolean zaAgenta) {
+        return avioKompanijaPlatiRezervaciju(avioKompanija, null, idRezervacije, zaAgenta);
+    }
+
+    // Ponovljen zahtev sa istim ključem idempotentnosti vraća isti iznos
+    public CompletableFuture<Double> avioKompanijaPlatiRezervaciju(String avioKompanija, String kljucIdempotentnosti,
+                                                                   String idRezervacije, boolean zaAgenta) {
+        return posalji(Protokol.AK_PLATI_REZERVACIJU, izlaz -> {
+            izlaz.writeUTF(avioKompanija);
+            Protokol.upisiString(izlaz, kljucIdempotentnosti);
+            izlaz.writeUTF(idRezervacije);
+            izlaz.writeBoolean(zaAgenta);
+        }).thenApply(RpcKlijent::procitajDouble);
+    }
+
+    public CompletableFuture<Boolean> avioKompanijaOtkaziRezervaciju(String avioKompanija, String idRezervacije) {
+        return posalji(Protokol.AK_OTKAZI_REZERVACIJU, izlaz -> {
+            izlaz.writeUTF(avioKompanija);
+            izlaz.writeUTF(idRezervacije);
+        }).thenApply(RpcKlijent::procitajBoolean);
+    }
+
+    public CompletableFuture<Double> avioKompanijaDnevniPrihod(String avioKompanija, LocalDate datum) {
+        return posalji(Protokol.AK_DNEVNI_PRIHOD, izlaz -> {
+            izlaz.writeUTF(avioKompanija);
+            Protokol.upisiDatum(izlaz, datum);
+        }).thenApply(RpcKlijent::procitajDouble);
+    }
+
+    // Metoda za slanje zahteva; odgovor se uparuje po idZahteva
+    private CompletableFuture<DataInputStream> posalji(byte kod, Protokol.PisacTela pisac) {
+        CompletableFuture<DataInputStream> odgovor = new CompletableFuture<>();
+        if (!radi) {
+            odgovor.completeExceptionally(new IOException("Veza je zatvorena"));
+            return odgovor;
+        }
+
+        long idZahteva = sledeciIdZahteva.incrementAndGet();
+        try {
+            ByteBuffer okvir = Protokol.napraviOkvir(idZahteva, kod, Protokol.napraviTelo(pisac));
+            naCekanju.put(idZahteva, odgovor);
+            zaSlanje.add(okvir);
+            selektor.wakeup();
+
+            // Veza je mogla biti prekinuta dok smo pripremali zahtev
+            if (!radi && naCekanju.remove(idZahteva) != null) {
+                odgovor.completeExceptionally(new IOException("Veza je zatvorena"));
+            }
+        } catch (IOException e) {
+            naCekanju.remove(idZahteva);
+            odgovor.completeExceptionally(e);
+        }
+        return odgovor;
+    }
+
+    private void petlja() {
+        try {
+            while (radi) {
+                selektor.select();
+                if (!zaSlanje.isEmpty() && kljuc.isValid()) {
+                    kljuc.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                }
+                selektor.selectedKeys().clear();
+
+                citaj();
+                pisi();
+            }
+        } catch (IOException e) {
+            prekini(e);
+        }
+    }
+
+    private void citaj() throws IOException {
+        ulaz = Protokol.obezbediProstor(ulaz);
+        int procitano = kanal.read(ulaz);
+        if (procitano < 0) {
+            throw new IOException("Server je zatvorio vezu");
+        }
+        if (procitano == 0) {
+            return;
+        }
+
+        ulaz.flip();
+        try {
+            Protokol.izdvojiOkvire(ulaz, this::primiOdgovor);
+        } finally {
+            ulaz.compact();
+        }
+    }
+
+    private void pisi() throws IOException {
+        ByteBuffer okvir;
+        while ((okvir = zaSlanje.peek()) != null) {
+            kanal.write(okvir);
+            if (okvir.hasRemaining()) {
+                return;
+            }
+            zaSlanje.poll();
+        }
+        kljuc.interestOps(SelectionKey.OP_READ);
+    }
+
+    private void primiOdgovor(long idZahteva, byte status, byte[] telo) throws IOException {
+        CompletableFuture<DataInputStream> odgovor = naCekanju.remove(idZahteva);
+        if (odgovor == null) {
+            return; // Odgovor na zahtev koji više niko ne čeka
+        }
+
+        DataInputStream ulazTela = new DataInputStream(new ByteArrayInputStream(telo));
+        if (status == Protokol.STATUS_OK) {
+            odgovor.complete(ulazTela);
+        } else {
+            String poruka = telo.length > 0 ? ulazTela.readUTF() : "Greška na serveru";
+            odgovor.completeExceptionally(new IOException(poruka));
+        }
+    }
+
+    // Metoda za obaveštavanje svih zahteva na čekanju da je veza prekinuta
+    private void prekini(IOException uzrok) {
+        radi = false;
+        for (Long idZahteva : naCekanju.keySet()) {
+            CompletableFuture<DataInputStream> odgovor = naCekanju.remove(idZahteva);
+            if (odgovor != null) {
+                odgovor.completeExceptionally(uzrok);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        radi = false;
+        selektor.wakeup();
+        try {
+            nit.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        prekini(new IOException("Veza je zatvorena"));
+        selektor.close();
+        kanal.close();
+    }
+
+    // Pomoćne metode za pisanje zahteva i čitanje tela odgovora
+
+    private static void upisiAerodrom(DataOutputStream izlaz, Aerodrom aerodrom) throws IOException {
+        izlaz.writeUTF(aerodrom.getSifra());
+        izlaz.writeUTF(aerodrom.getNaziv());
+        izlaz.writeUTF(aerodrom.getGrad());
+    }
+
+    private static List<OpisLeta> procitajLetove(DataInputStream ulaz) {
+        try {
+            int broj = ulaz.readInt();
+            List<OpisLeta> letovi = new ArrayList<>(broj);
+            for (int i = 0; i < broj; i++) {
+                letovi.add(OpisLeta.procitaj(ulaz));
+            }
+            return letovi;
+        } catch (IOException e) {
+            throw new IllegalStateException("Neispravan odgovor servera", e);
+        }
+    }
+
+    private static String procitajString(DataInputStream ulaz) {
+        try {
+            return Protokol.procitajString(ulaz);
+        } catch (IOException e) {
+            throw new IllegalStateException("Neispravan odgovor servera", e);
+        }
+    }
+
+    private static Double procitajDouble(DataInputStream ulaz) {
+        try {
+            return ulaz.readDouble();
+        } catch (IOException e) {
+            throw new IllegalStateException("Neispravan odgovor servera", e);
+        }
+    }
+
+    private static Boolean procitajBoolean(DataInputStream ulaz) {
+        try {
+            return ulaz.readBoolean();
+        } catch (IOException e) {
+            throw new IllegalStateException("Neispravan odgovor servera", e);
+        }
+    }
+}
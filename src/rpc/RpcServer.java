@@ -0,0 +1,419 @@
+package rpc;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import model.Aerodrom;
+import model.Agent;
+import model.AvioKompanija;
+import model.Let;
+import model.Rezervacija;
+
+/*
+ * Neblokirajući RPC server za agente i avio kompanije.
+ *
+ * Jedna nit selektora prihvata veze, čita i piše bajtove; zahtevi se obrađuju
+ * na fiksnom broju niti obrade. Broj veza zato nije vezan za broj niti, a
+ * odgovori na zahteve sa iste veze mogu stići bilo kojim redom.
+ *
+ * Server odvaja klijente od agenata i avio kompanija, ali ne i agenta od njegovih
+ * avio kompanija: Agent i dalje direktno poziva AvioKompanija objekte (zaključava
+ * njihove letove i čita ih u istom snimku), pa proces koji izlaže agenta mora da
+ * sadrži i sve njegove avio kompanije. Samostalne avio kompanije mogu da rade u
+ * posebnim procesima samo za klijente koji ih pozivaju direktno (AK_* operacije).
+ */
+public class RpcServer implements Closeable {
+
+    private static final int POCETNA_VELICINA_BAFERA = 16 * 1024;
+
+    // Granice po vezi: kada klijent ima toliko zahteva u obradi (od prijema do slanja odgovora)
+    // ili toliko neposlatih bajtova, server prestaje da čita sa te veze dok klijent ne preuzme
+    // odgovore. Memorija za odgovore jedne veze je tako ograničena na
+    // MAKSIMALNO_ZAHTEVA_U_OBRADI okvira najveće dozvoljene dužine.
+    private static final long MAKSIMALNO_BAJTOVA_ZA_SLANJE = 8L * Protokol.MAKSIMALNA_DUZINA_OKVIRA;
+    private static final int MAKSIMALNO_ZAHTEVA_U_OBRADI = 64;
+
+    private final Map<String, Agent> agenti;
+    private final Map<String, AvioKompanija> avioKompanije;
+
+    private final ServerSocketChannel serverKanal;
+    private final Selector selektor;
+    private final ExecutorService obrada;
+
+    // Veze koje imaju nove odgovore za slanje, obrađuje ih nit selektora
+    private final Queue<Veza> vezeZaPisanje;
+
+    private Thread nitSelektora;
+    private volatile boolean radi;
+
+    public RpcServer(int port, int brojNitiObrade) throws IOException {
+        this.agenti = new ConcurrentHashMap<>();
+        this.avioKompanije = new ConcurrentHashMap<>();
+        this.vezeZaPisanje = new ConcurrentLinkedQueue<>();
+        this.obrada = Executors.newFixedThreadPool(brojNitiObrade);
+        this.selektor = Selector.open();
+        this.serverKanal = ServerSocketChannel.open();
+        this.serverKanal.bind(new InetSocketAddress(port));
+        this.serverKanal.configureBlocking(false);
+        this.serverKanal.register(selektor, SelectionKey.OP_ACCEPT);
+    }
+
+    // Metoda za registrovanje agenta pod njegovim nazivom
+    public void registrujAgenta(Agent agent) {
+        agenti.put(agent.getNaziv(), agent);
+    }
+
+    // Metoda za registrovanje avio kompanije pod njenim nazivom
+    public void registrujAvioKompaniju(AvioKompanija avioKompanija) {
+        avioKompanije.put(avioKompanija.getNaziv(), avioKompanija);
+    }
+
+    // Metoda za pokretanje niti selektora
+    public synchronized void pokreni() {
+        if (radi) {
+            return;
+        }
+        radi = true;
+        nitSelektora = new Thread(this::petljaSelektora, "rpc-server-" + getPort());
+        nitSelektora.setDaemon(true);
+        nitSelektora.start();
+    }
+
+    public int getPort() {
+        return serverKanal.socket().getLocalPort();
+    }
+
+    private void petljaSelektora() {
+        try {
+            while (radi) {
+                selektor.select();
+                prijaviPisanja();
+
+                Iterator<SelectionKey> kljucevi = selektor.selectedKeys().iterator();
+                while (kljucevi.hasNext()) {
+                    SelectionKey kljuc = kljucevi.next();
+                    kljucevi.remove();
+
+                    if (!kljuc.isValid()) {
+                        continue;
+                    }
+                    try {
+                        if (kljuc.isAcceptable()) {
+                            prihvati();
+                        } else {
+                            if (kljuc.isReadable()) {
+                                citaj(kljuc);
+                            }
+                            if (kljuc.isValid() && kljuc.isWritable()) {
+                                pisi(kljuc);
+                            }
+                        }
+                    } catch (IOException e) {
+                        zatvoriVezu(kljuc);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("RPC server - greška selektora: " + e.getMessage());
+        }
+    }
+
+    private void prihvati() throws IOException {
+        SocketChannel kanal = serverKanal.accept();
+        if (kanal == null) {
+            return;
+        }
+        kanal.configureBlocking(false);
+        kanal.socket().setTcpNoDelay(true);
+        SelectionKey kljuc = kanal.register(selektor, SelectionKey.OP_READ);
+        kljuc.attach(new Veza(kanal, kljuc));
+    }
+
+    private void citaj(SelectionKey kljuc) throws IOException {
+        Veza veza = (Veza) kljuc.attachment();
+        veza.ulaz = Protokol.obezbediProstor(veza.ulaz);
+        int procitano = veza.kanal.read(veza.ulaz);
+        if (procitano < 0) {
+            zatvoriVezu(kljuc);
+            return;
+        }
+
+        obradiUlaz(veza);
+        azurirajInteres(veza);
+    }
+
+    // Metoda za predaju primljenih zahteva nitima obrade, najviše do granice za vezu;
+    // ostatak čeka u ulaznom baferu dok klijent ne preuzme odgovore
+    private void obradiUlaz(Veza veza) throws IOException {
+        veza.ulaz.flip();
+        try {
+            Protokol.izdvojiOkvire(veza.ulaz, slobodnihMesta(veza), (idZahteva, kod, telo) -> {
+                veza.zahteviUObradi.incrementAndGet();
+                obrada.execute(() -> obradiZahtev(veza, idZahteva, kod, telo));
+            });
+        } finally {
+            veza.ulaz.compact();
+        }
+    }
+
+    private static int slobodnihMesta(Veza veza) {
+        if (veza.bajtovaZaSlanje.get() >= MAKSIMALNO_BAJTOVA_ZA_SLANJE) {
+            return 0;
+        }
+        return Math.max(0, MAKSIMALNO_ZAHTEVA_U_OBRADI - veza.zahteviUObradi.get());
+    }
+
+    private void pisi(SelectionKey kljuc) throws IOException {
+        Veza veza = (Veza) kljuc.attachment();
+        ByteBuffer okvir;
+        while ((okvir = veza.izlaz.peek()) != null) {
+            veza.kanal.write(okvir);
+            if (okvir.hasRemaining()) {
+                break; // Socket bafer je pun, nastavljamo kada bude spreman
+            }
+            veza.izlaz.poll();
+            veza.bajtovaZaSlanje.addAndGet(-okvir.capacity());
+            veza.zahteviUObradi.decrementAndGet();
+        }
+
+        // Zahtevi koji su čekali u baferu mogu da krenu; za njih socket možda više neće javiti čitanje
+        if (veza.ulaz.position() > 0 && slobodnihMesta(veza) > 0) {
+            obradiUlaz(veza);
+        }
+        azurirajInteres(veza);
+    }
+
+    // Metoda za izbor događaja koje nit selektora prati za vezu: pisanje dok ima odgovora,
+    // a čitanje samo dok klijent nije prešao granice za neposlate odgovore
+    private void azurirajInteres(Veza veza) {
+        if (!veza.kljuc.isValid()) {
+            return;
+        }
+        int interes = 0;
+        if (slobodnihMesta(veza) > 0) {
+            interes |= SelectionKey.OP_READ;
+        }
+        if (!veza.izlaz.isEmpty()) {
+            interes |= SelectionKey.OP_WRITE;
+        }
+        veza.kljuc.interestOps(interes);
+    }
+
+    // Metoda koju nit selektora poziva da uključi pisanje za veze sa novim odgovorima
+    private void prijaviPisanja() {
+        Veza veza;
+        while ((veza = vezeZaPisanje.poll()) != null) {
+            azurirajInteres(veza);
+        }
+    }
+
+    private void posaljiOdgovor(Veza veza, ByteBuffer okvir) {
+        veza.bajtovaZaSlanje.addAndGet(okvir.capacity());
+        veza.izlaz.add(okvir);
+        vezeZaPisanje.add(veza);
+        selektor.wakeup();
+    }
+
+    private void zatvoriVezu(SelectionKey kljuc) {
+        kljuc.cancel();
+        try {
+            kljuc.channel().close();
+        } catch (IOException e) {
+            // Veza je već prekinuta
+        }
+    }
+
+    // Metoda koja se izvršava na niti obrade
+    private void obradiZahtev(Veza veza, long idZahteva, byte kod, byte[] telo) {
+        ByteBuffer odgovor;
+        try {
+            DataInputStream ulaz = new DataInputStream(new ByteArrayInputStream(telo));
+            byte[] rezultat = Protokol.napraviTelo(izlaz -> izvrsi(kod, ulaz, izlaz));
+            // Prevelik odgovor postaje greška samo za ovaj zahtev; veza ostaje otvorena
+            odgovor = Protokol.napraviOkvir(idZahteva, Protokol.STATUS_OK, rezultat);
+        } catch (Exception e) {
+            odgovor = napraviGresku(idZahteva, e.getMessage() != null ? e.getMessage() : e.toString());
+        }
+        posaljiOdgovor(veza, odgovor);
+    }
+
+    private ByteBuffer napraviGresku(long idZahteva, String poruka) {
+        try {
+            return Protokol.napraviOkvir(idZahteva, Protokol.STATUS_GRESKA,
+                    Protokol.napraviTelo(izlaz -> izlaz.writeUTF(poruka)));
+        } catch (IOException e) {
+            return Protokol.napraviPrazanOkvir(idZahteva, Protokol.STATUS_GRESKA);
+        }
+    }
+
+    // Metoda za izvršavanje operacije nad agentom ili avio kompanijom
+    private void izvrsi(byte kod, DataInputStream ulaz, DataOutputStream izlaz) throws IOException {
+        String naziv = ulaz.readUTF();
+
+        switch (kod) {
+            case Protokol.AGENT_NADJI_LETOVE: {
+                Agent agent = nadjiAgenta(naziv);
+                upisiLetove(izlaz, agent.nadjiLetove(procitajAerodrom(ulaz), procitajAerodrom(ulaz),
+                        Protokol.procitajDatum(ulaz)));
+                break;
+            }
+            case Protokol.AGENT_REZERVISI_LET: {
+                Agent agent = nadjiAgenta(naziv);
+                String kljucIdempotentnosti = Protokol.procitajString(ulaz);
+                String sifraLeta = ulaz.readUTF();
+                String sifraPovratnogLeta = Protokol.procitajString(ulaz);
+                int brojOsoba = procitajBrojOsoba(ulaz);
+                upisiRezervaciju(izlaz, agent.rezervisiLet(kljucIdempotentnosti, sifraLeta,
+                        sifraPovratnogLeta, brojOsoba));
+                break;
+            }
+            case Protokol.AGENT_PLATI_REZERVACIJU: {
+                Agent agent = nadjiAgenta(naziv);
+                String kljucIdempotentnosti = Protokol.procitajString(ulaz);
+                izlaz.writeDouble(agent.platiRezervaciju(kljucIdempotentnosti, ulaz.readUTF()));
+                break;
+            }
+            case Protokol.AGENT_OTKAZI_REZERVACIJU:
+                izlaz.writeBoolean(nadjiAgenta(naziv).otkaziRezervaciju(ulaz.readUTF()));
+                break;
+            case Protokol.AGENT_DNEVNI_PRIHOD:
+                izlaz.writeDouble(nadjiAgenta(naziv).getDnevniPrihod(Protokol.procitajDatum(ulaz)));
+                break;
+
+            case Protokol.AK_NADJI_LETOVE: {
+                AvioKompanija avioKompanija = nadjiAvioKompaniju(naziv);
+                upisiLetove(izlaz, avioKompanija.nadjiLetove(procitajAerodrom(ulaz), procitajAerodrom(ulaz),
+                        Protokol.procitajDatum(ulaz)));
+                break;
+            }
+            case Protokol.AK_REZERVISI_LET: {
+                AvioKompanija avioKompanija = nadjiAvioKompaniju(naziv);
+                String kljucIdempotentnosti = Protokol.procitajString(ulaz);
+                String sifraLeta = ulaz.readUTF();
+                String sifraPovratnogLeta = Protokol.procitajString(ulaz);
+                int brojOsoba = procitajBrojOsoba(ulaz);
+                boolean zaAgenta = ulaz.readBoolean();
+                upisiRezervaciju(izlaz, avioKompanija.rezervisiLet(kljucIdempotentnosti, sifraLeta,
+                        sifraPovratnogLeta, brojOsoba, zaAgenta));
+                break;
+            }
+            case Protokol.AK_PLATI_REZERVACIJU: {
+                AvioKompanija avioKompanija = nadjiAvioKompaniju(naziv);
+                String kljucIdempotentnosti = Protokol.procitajString(ulaz);
+                String idRezervacije = ulaz.readUTF();
+                izlaz.writeDouble(avioKompanija.platiRezervaciju(kljucIdempotentnosti, idRezervacije,
+                        ulaz.readBoolean()));
+                break;
+            }
+            case Protokol.AK_OTKAZI_REZERVACIJU:
+                izlaz.writeBoolean(nadjiAvioKompaniju(naziv).otkaziRezervaciju(ulaz.readUTF()));
+                break;
+            case Protokol.AK_DNEVNI_PRIHOD:
+                izlaz.writeDouble(nadjiAvioKompaniju(naziv).getDnevniPrihod(Protokol.procitajDatum(ulaz)));
+                break;
+
+            default:
+                throw new IOException("Nepoznat kod operacije: " + kod);
+        }
+    }
+
+    // Broj osoba stiže sa mreže; nula ili negativan broj bi oslobodio tuđa mesta
+    private static int procitajBrojOsoba(DataInputStream ulaz) throws IOException {
+        int brojOsoba = ulaz.readInt();
+        if (brojOsoba <= 0) {
+            throw new IOException("Neispravan broj osoba: " + brojOsoba);
+        }
+        return brojOsoba;
+    }
+
+    private Agent nadjiAgenta(String naziv) throws IOException {
+        Agent agent = agenti.get(naziv);
+        if (agent == null) {
+            throw new IOException("Nepoznat agent: " + naziv);
+        }
+        return agent;
+    }
+
+    private AvioKompanija nadjiAvioKompaniju(String naziv) throws IOException {
+        AvioKompanija avioKompanija = avioKompanije.get(naziv);
+        if (avioKompanija == null) {
+            throw new IOException("Nepoznata avio kompanija: " + naziv);
+        }
+        return avioKompanija;
+    }
+
+    private static Aerodrom procitajAerodrom(DataInputStream ulaz) throws IOException {
+        return new Aerodrom(ulaz.readUTF(), ulaz.readUTF(), ulaz.readUTF());
+    }
+
+    private static void upisiLetove(DataOutputStream izlaz, List<Let> letovi) throws IOException {
+        izlaz.writeInt(letovi.size());
+        for (Let let : letovi) {
+            OpisLeta.upisi(izlaz, let);
+        }
+    }
+
+    // Klijent dobija samo ID rezervacije, ili null ako rezervacija nije uspela
+    private static void upisiRezervaciju(DataOutputStream izlaz, Rezervacija rezervacija) throws IOException {
+        Protokol.upisiString(izlaz, rezervacija != null ? rezervacija.getId() : null);
+    }
+
+    // Metoda za gašenje servera
+    @Override
+    public void close() throws IOException {
+        radi = false;
+        selektor.wakeup();
+        if (nitSelektora != null) {
+            try {
+                nitSelektora.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        obrada.shutdown();
+        for (SelectionKey kljuc : selektor.keys()) {
+            kljuc.channel().close();
+        }
+        selektor.close();
+        serverKanal.close();
+    }
+
+    // Stanje jedne klijentske veze
+    private static class Veza {
+        private final SocketChannel kanal;
+        private final SelectionKey kljuc;
+        private final Queue<ByteBuffer> izlaz;
+        private final AtomicLong bajtovaZaSlanje;
+        private final AtomicInteger zahteviUObradi; // Od prijema zahteva do slanja odgovora
+        private ByteBuffer ulaz;
+
+        Veza(SocketChannel kanal, SelectionKey kljuc) {
+            this.kanal = kanal;
+            this.kljuc = kljuc;
+            this.izlaz = new ConcurrentLinkedQueue<>();
+            this.bajtovaZaSlanje = new AtomicLong();
+            this.zahteviUObradi = new AtomicInteger();
+            this.ulaz = ByteBuffer.allocate(POCETNA_VELICINA_BAFERA);
+        }
+    }
+}